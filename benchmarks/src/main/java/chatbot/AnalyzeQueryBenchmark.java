@@ -0,0 +1,36 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdvancedNLPProcessor.analyzeQuery over the query corpus.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzeQueryBenchmark {
+    @Param({"short", "medium", "long"})
+    public String inputLength;
+
+    private AdvancedNLPProcessor processor;
+    private String[] inputs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        processor = new AdvancedNLPProcessor();
+        inputs = BenchmarkCorpus.queries(inputLength);
+    }
+
+    @Benchmark
+    public ProcessedQuery analyzeQuery() {
+        String input = inputs[next];
+        next = (next + 1) % inputs.length;
+        return processor.analyzeQuery(input);
+    }
+}
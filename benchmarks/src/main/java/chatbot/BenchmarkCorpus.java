@@ -0,0 +1,169 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Shared inputs for the pipeline benchmarks: a corpus of realistic queries
+ * at several lengths and engines or compiled corpora with synthetic knowledge
+ * bases of a given size.
+ */
+final class BenchmarkCorpus {
+    private static final String[] TOPIC_WORDS = {
+            "cloud", "security", "network", "database", "design", "testing", "deployment", "finance",
+            "marketing", "strategy", "health", "nutrition", "history", "physics", "chemistry", "biology",
+            "economics", "statistics", "algebra", "geometry", "language", "grammar", "writing", "music",
+            "painting", "travel", "energy", "solar", "wind", "ocean", "forest", "climate",
+            "python", "java", "rust", "kotlin", "compiler", "kernel", "memory", "cache",
+            "startup", "leadership", "hiring", "sales", "budget", "accounting", "tax", "law",
+            "privacy", "ethics", "robotics", "vision", "speech", "learning", "neural", "model",
+            "project", "agile", "scrum", "quality", "supply", "logistics", "retail", "banking"
+    };
+
+    private BenchmarkCorpus() {
+    }
+
+    static List<String> queries() {
+        InputStream in = BenchmarkCorpus.class.getResourceAsStream("queries.txt");
+        if (in == null) {
+            throw new IllegalStateException("queries.txt not found on classpath");
+        }
+        List<String> queries = new ArrayList<String>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    queries.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return queries;
+    }
+
+    /**
+     * Queries as written ("short"), with a trailing clause ("medium"), or four
+     * queries run together into one message ("long").
+     */
+    static String[] queries(String length) {
+        List<String> base = queries();
+        String[] result = new String[base.size()];
+        for (int i = 0; i < result.length; i++) {
+            switch (length) {
+                case "short":
+                    result[i] = base.get(i);
+                    break;
+                case "medium":
+                    result[i] = base.get(i) + ", I am asking because I need it for a project at work this week";
+                    break;
+                case "long":
+                    StringBuilder sb = new StringBuilder(base.get(i));
+                    for (int j = 1; j < 4; j++) {
+                        sb.append(". ").append(base.get((i + j * 7) % base.size()));
+                    }
+                    result[i] = sb.toString();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown input length: " + length);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Engine with the professional knowledge base padded with synthetic
+     * three-word topics up to the requested number of entries.
+     */
+    static ProfessionalChatbotEngine engine(int knowledgeEntries) {
+        ProfessionalChatbotEngine engine = new ProfessionalChatbotEngine();
+        engine.loadProfessionalKnowledgeBase();
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        for (String topic : syntheticTopics(knowledgeEntries - 8)) {
+            entries.put(topic, "Synthetic answer about " + topic + ".");
+        }
+        engine.addKnowledge(entries);
+        return engine;
+    }
+
+    /**
+     * The same synthetic topics compiled into a temporary MappedKnowledgeBase file.
+     */
+    static Path compiledCorpus(int knowledgeEntries) throws IOException {
+        KnowledgeBaseBuilder builder = new KnowledgeBaseBuilder();
+        for (String topic : syntheticTopics(knowledgeEntries)) {
+            builder.add(topic, "Synthetic answer about " + topic + ".");
+        }
+        Path file = Files.createTempFile("chatbot-benchmark", ".kb");
+        file.toFile().deleteOnExit();
+        builder.write(file);
+        return file;
+    }
+
+    /**
+     * A compiled corpus whose three-word topics draw on a vocabulary of half as
+     * many made-up words as there are entries, common words far more often than
+     * rare ones. Unlike the synthetic topics, whose unique numbers are never
+     * corrected, every term goes into the typo index.
+     */
+    static Path realisticCorpus(int knowledgeEntries) throws IOException {
+        List<String> words = vocabulary(Math.max(64, knowledgeEntries / 2));
+        Random random = new Random(42);
+        Set<String> topics = new LinkedHashSet<String>();
+        while (topics.size() < knowledgeEntries) {
+            StringBuilder topic = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                // Cubing skews the picks towards the front of the list
+                double skewed = Math.pow(random.nextDouble(), 3);
+                topic.append(i == 0 ? "" : " ").append(words.get((int) (skewed * words.size())));
+            }
+            topics.add(topic.toString());
+        }
+        KnowledgeBaseBuilder builder = new KnowledgeBaseBuilder();
+        for (String topic : topics) {
+            builder.add(topic, "Answer about " + topic + ".");
+        }
+        Path file = Files.createTempFile("chatbot-benchmark", ".kb");
+        file.toFile().deleteOnExit();
+        builder.write(file);
+        return file;
+    }
+
+    /**
+     * Distinct made-up words of two to five syllables, for vocabularies far
+     * larger than any word list.
+     */
+    static List<String> vocabulary(int count) {
+        String[] onsets = {"b", "br", "c", "ch", "d", "f", "g", "gr", "h", "k", "l", "m", "n", "p", "pl", "r",
+                "s", "sh", "st", "t", "tr", "v", "w", "z"};
+        String[] vowels = {"a", "e", "i", "o", "u", "ai", "ea", "io", "ou"};
+        String[] codas = {"", "", "", "n", "r", "s", "t", "l", "m", "ng", "ck"};
+        Random random = new Random(7);
+        Set<String> words = new LinkedHashSet<String>();
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(4);
+            for (int i = 0; i < syllables; i++) {
+                word.append(onsets[random.nextInt(onsets.length)]).append(vowels[random.nextInt(vowels.length)])
+                        .append(codas[random.nextInt(codas.length)]);
+            }
+            words.add(word.toString());
+        }
+        return new ArrayList<String>(words);
+    }
+
+    private static List<String> syntheticTopics(int count) {
+        Random random = new Random(42);
+        Set<String> topics = new LinkedHashSet<String>();
+        while (topics.size() < count) {
+            topics.add(TOPIC_WORDS[random.nextInt(TOPIC_WORDS.length)] + " "
+                    + TOPIC_WORDS[random.nextInt(TOPIC_WORDS.length)] + " "
+                    + TOPIC_WORDS[random.nextInt(TOPIC_WORDS.length)] + " " + topics.size());
+        }
+        return new ArrayList<String>(topics);
+    }
+}
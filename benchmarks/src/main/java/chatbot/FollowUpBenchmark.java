@@ -0,0 +1,50 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follow-up turns ("what about its frameworks?") resolved through the
+ * conversation context, in a session that has already had the given number
+ * of turns. The per-turn cost should not depend on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FollowUpBenchmark {
+    private static final String[] TURNS = {
+            "Tell me about python programming",
+            "What about its frameworks?",
+            "What is climate change?",
+            "Can you tell me more about it?",
+    };
+
+    @Param({"10", "1000", "100000"})
+    public int history;
+
+    private ProfessionalChatbotEngine engine;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = BenchmarkCorpus.engine(1000);
+        for (int i = 0; i < history; i++) {
+            engine.processMessage("conversation", TURNS[i % TURNS.length], false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Benchmark
+    public String turn() {
+        return engine.processMessage("conversation", TURNS[next++ % TURNS.length], false);
+    }
+}
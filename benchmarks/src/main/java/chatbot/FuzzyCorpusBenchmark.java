@@ -0,0 +1,67 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typo correction against a compiled corpus with a realistic vocabulary (see
+ * BenchmarkCorpus.realisticCorpus): building the corpus typo index, which
+ * runs in the background after the corpus is attached, and correcting a
+ * misspelt term through a snapshot once the index is ready.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FuzzyCorpusBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int knowledgeEntries;
+
+    private MappedKnowledgeBase corpus;
+    private EngineSnapshot snapshot;
+    private List<String>[] queries;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException, InterruptedException {
+        System.setProperty(MappedKnowledgeBase.MAX_FUZZY_TERMS_PROPERTY, String.valueOf(Integer.MAX_VALUE));
+        Path file = BenchmarkCorpus.realisticCorpus(knowledgeEntries);
+        corpus = MappedKnowledgeBase.open(file);
+        snapshot = EngineSnapshot.initial().withCorpus(corpus, 1);
+        while (corpus.fuzzyTerms() == null) {
+            Thread.sleep(10);
+        }
+
+        Random random = new Random(11);
+        queries = (List<String>[]) new List<?>[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String term = corpus.getTerm(random.nextInt(corpus.getTermCount()));
+            // One substitution a few letters in, so the term is unknown but within reach
+            int position = Math.min(3, term.length() - 1);
+            char replaced = term.charAt(position) == 'q' ? 'x' : 'q';
+            queries[i] = Collections.singletonList(term.substring(0, position) + replaced + term.substring(position + 1));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FuzzyTermIndex buildIndex() {
+        return corpus.buildFuzzyTerms();
+    }
+
+    @Benchmark
+    public List<String> correctTerm() {
+        List<String> query = queries[next];
+        next = (next + 1) % queries.length;
+        return snapshot.correctTerms(query);
+    }
+}
@@ -0,0 +1,87 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typo correction against vocabularies of up to a million words: the indexed
+ * FuzzyTermIndex lookup next to checking the edit distance to every word.
+ * Every query is a vocabulary word with one or two random edits, searched with
+ * the distance the default policy allows for its length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FuzzyLookupBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int vocabularySize;
+
+    private List<String> vocabulary;
+    private FuzzyTermIndex index;
+    private FuzzyTermIndex.Policy policy;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        vocabulary = BenchmarkCorpus.vocabulary(vocabularySize);
+        index = new FuzzyTermIndex(vocabulary);
+        policy = FuzzyTermIndex.Policy.parse(FuzzyTermIndex.Policy.DEFAULT);
+        Random random = new Random(11);
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String word = vocabulary.get(random.nextInt(vocabulary.size()));
+            queries[i] = typo(typo(word, random), random);
+        }
+    }
+
+    private static String typo(String word, Random random) {
+        StringBuilder sb = new StringBuilder(word);
+        int position = random.nextInt(sb.length() - 1);
+        switch (random.nextInt(4)) {
+            case 0:
+                sb.setCharAt(position, (char) ('a' + random.nextInt(26)));
+                break;
+            case 1:
+                sb.deleteCharAt(position);
+                break;
+            case 2:
+                sb.insert(position, (char) ('a' + random.nextInt(26)));
+                break;
+            default:
+                char c = sb.charAt(position);
+                sb.setCharAt(position, sb.charAt(position + 1));
+                sb.setCharAt(position + 1, c);
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public FuzzyTermIndex.Match indexed() {
+        String query = queries[next];
+        next = (next + 1) % queries.length;
+        return index.closest(query, policy.maxDistance(query.length()));
+    }
+
+    @Benchmark
+    public String linearScan() {
+        String query = queries[next];
+        next = (next + 1) % queries.length;
+        int maxDistance = policy.maxDistance(query.length());
+        String best = null;
+        for (String word : vocabulary) {
+            int distance = FuzzyTermIndex.distance(query, word, maxDistance);
+            if (distance <= maxDistance) {
+                maxDistance = distance - 1;
+                best = word;
+            }
+        }
+        return best;
+    }
+}
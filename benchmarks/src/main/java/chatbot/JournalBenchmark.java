@@ -0,0 +1,74 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journaling overhead per message: processMessage with no journal and with
+ * each durability level. Run with -t N to see group commit share fsyncs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    private static final int SESSIONS = 100;
+
+    @Param({"NONE", "ASYNC", "GROUP", "SYNC"})
+    public String durability;
+
+    private ProfessionalChatbotEngine engine;
+    private ConversationJournal journal;
+    private Path directory;
+    private String[] inputs;
+
+    @Setup
+    public void setUp() throws IOException {
+        engine = BenchmarkCorpus.engine(1000);
+        inputs = BenchmarkCorpus.queries("short");
+        if (!"NONE".equals(durability)) {
+            directory = Files.createTempDirectory("chatbot-journal");
+            journal = ConversationJournal.open(directory, ConversationJournal.Durability.valueOf(durability),
+                    10, 64 * 1024 * 1024, 1000000, 8);
+            engine.attachJournal(journal);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        // Also closes the journal
+        engine.close();
+        if (journal != null) {
+            deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        final String session = "session-" + Thread.currentThread().getId() % SESSIONS;
+    }
+
+    @Benchmark
+    public String processMessage(Cursor cursor) {
+        String input = inputs[cursor.next];
+        cursor.next = (cursor.next + 1) % inputs.length;
+        return engine.processMessage(cursor.session, input, false);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
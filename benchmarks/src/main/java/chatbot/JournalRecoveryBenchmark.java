@@ -0,0 +1,77 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to reopen a journal of millions of turns and restore the recent turns
+ * of a sample of sessions, with a checkpoint (tail scan only) and without
+ * one, as after a crash before the first checkpoint (full scan).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalRecoveryBenchmark {
+    private static final int SESSIONS = 100000;
+    private static final int RESTORED_SESSIONS = 1000;
+
+    @Param({"1000000", "3000000"})
+    public int turns;
+
+    @Param({"true", "false"})
+    public boolean checkpoint;
+
+    private Path directory;
+    private ConversationJournal journal;
+
+    @Setup(Level.Trial)
+    public void writeJournal() throws IOException {
+        directory = Files.createTempDirectory("chatbot-journal");
+        ConversationJournal writer = ConversationJournal.open(directory, ConversationJournal.Durability.ASYNC,
+                10, 64 * 1024 * 1024, Long.MAX_VALUE, Integer.MAX_VALUE);
+        for (int i = 0; i < turns; i++) {
+            ConversationJournal.Role role = i % 2 == 0 ? ConversationJournal.Role.USER : ConversationJournal.Role.ASSISTANT;
+            writer.append("session-" + (i / 2) % SESSIONS, role, "Turn " + i + ": what is the best way to learn java programming?");
+        }
+        writer.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() throws IOException {
+        if (!checkpoint) {
+            Files.deleteIfExists(directory.resolve("heads.chk"));
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        journal = ConversationJournal.open(directory, ConversationJournal.Durability.ASYNC, 10, 64 * 1024 * 1024, Long.MAX_VALUE,
+                Integer.MAX_VALUE);
+        Random random = new Random(7);
+        int restored = 0;
+        for (int i = 0; i < RESTORED_SESSIONS; i++) {
+            List<ConversationJournal.Turn> recent = journal.recentTurns("session-" + random.nextInt(SESSIONS), 10);
+            restored += recent.size();
+        }
+        return restored;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJournal() throws IOException {
+        JournalBenchmark.deleteRecursively(directory);
+    }
+}
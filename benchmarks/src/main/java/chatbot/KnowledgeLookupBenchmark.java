@@ -0,0 +1,51 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProfessionalChatbotEngine.findKnowledgeMatch at several knowledge base sizes.
+ * Queries are analyzed up front so only the lookup is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KnowledgeLookupBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int knowledgeEntries;
+
+    @Param({"short", "medium", "long"})
+    public String inputLength;
+
+    private ProfessionalChatbotEngine engine;
+    private ProcessedQuery[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = BenchmarkCorpus.engine(knowledgeEntries);
+        AdvancedNLPProcessor processor = new AdvancedNLPProcessor();
+        String[] inputs = BenchmarkCorpus.queries(inputLength);
+        queries = new ProcessedQuery[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            queries[i] = processor.analyzeQuery(inputs[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Benchmark
+    public String findKnowledgeMatch() {
+        ProcessedQuery query = queries[next];
+        next = (next + 1) % queries.length;
+        return engine.findKnowledgeMatch(query);
+    }
+}
@@ -0,0 +1,53 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a compiled corpus and looking queries up in it, at sizes up to a
+ * million entries. Compare lookup with KnowledgeLookupBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MappedKnowledgeBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int knowledgeEntries;
+
+    private Path file;
+    private MappedKnowledgeBase corpus;
+    private List<String>[] queries;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        file = BenchmarkCorpus.compiledCorpus(knowledgeEntries);
+        corpus = MappedKnowledgeBase.open(file);
+        AdvancedNLPProcessor processor = new AdvancedNLPProcessor();
+        String[] inputs = BenchmarkCorpus.queries("short");
+        queries = (List<String>[]) new List<?>[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            queries[i] = processor.analyzeQuery(inputs[i]).getKeywords();
+        }
+    }
+
+    @Benchmark
+    public String lookup() {
+        List<String> terms = queries[next];
+        next = (next + 1) % queries.length;
+        return corpus.findBestAnswer(terms);
+    }
+
+    @Benchmark
+    public MappedKnowledgeBase open() throws IOException {
+        return MappedKnowledgeBase.open(file);
+    }
+}
@@ -0,0 +1,56 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pipeline instrumentation: processMessage with metrics on and off,
+ * and a single histogram record under contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+    @Param({"true", "false"})
+    public boolean metricsEnabled;
+
+    private ProfessionalChatbotEngine engine;
+    private LatencyHistogram histogram;
+    private String[] inputs;
+
+    @Setup
+    public void setUp() {
+        engine = BenchmarkCorpus.engine(1000);
+        engine.getMetrics().setEnabled(metricsEnabled);
+        histogram = new LatencyHistogram();
+        inputs = BenchmarkCorpus.queries("short");
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Benchmark
+    public String processMessage(Cursor cursor) {
+        String input = inputs[cursor.next];
+        cursor.next = (cursor.next + 1) % inputs.length;
+        return engine.processMessage(input, false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordLatency(Cursor cursor) {
+        histogram.record(1000 + cursor.next++ % 50000);
+    }
+}
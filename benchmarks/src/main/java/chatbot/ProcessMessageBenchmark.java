@@ -0,0 +1,54 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProfessionalChatbotEngine.processMessage end to end, without internet search,
+ * spread over a fixed set of sessions.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessMessageBenchmark {
+    private static final int SESSIONS = 100;
+
+    @Param({"10", "1000", "100000"})
+    public int knowledgeEntries;
+
+    @Param({"short", "medium", "long"})
+    public String inputLength;
+
+    private ProfessionalChatbotEngine engine;
+    private String[] inputs;
+    private String[] sessionIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = BenchmarkCorpus.engine(knowledgeEntries);
+        inputs = BenchmarkCorpus.queries(inputLength);
+        sessionIds = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = "session-" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Benchmark
+    public String processMessage() {
+        String input = inputs[next % inputs.length];
+        String session = sessionIds[next % SESSIONS];
+        next = (next + 1) % (inputs.length * SESSIONS);
+        return engine.processMessage(session, input, false);
+    }
+}
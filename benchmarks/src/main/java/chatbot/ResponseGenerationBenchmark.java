@@ -0,0 +1,42 @@
+package chatbot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntelligentResponseGenerator.generateContextualResponse for pre-analyzed queries.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseGenerationBenchmark {
+    @Param({"short", "medium", "long"})
+    public String inputLength;
+
+    private IntelligentResponseGenerator generator;
+    private ProcessedQuery[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        generator = new IntelligentResponseGenerator(IntelligentResponseGenerator.defaultPatterns());
+
+        AdvancedNLPProcessor processor = new AdvancedNLPProcessor();
+        String[] inputs = BenchmarkCorpus.queries(inputLength);
+        queries = new ProcessedQuery[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            queries[i] = processor.analyzeQuery(inputs[i]);
+        }
+    }
+
+    @Benchmark
+    public String generateContextualResponse() {
+        ProcessedQuery query = queries[next];
+        next = (next + 1) % queries.length;
+        return generator.generateContextualResponse(query);
+    }
+}
@@ -0,0 +1,92 @@
+package chatbot;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of current-information questions against a local stub
+ * search server that answers in 20 ms, except for 3% of requests that take
+ * 250 ms. Compares the sequential pipeline with speculative search, with and
+ * without a hedged second request after 50 ms. Live web answers win over the
+ * knowledge base, which holds 100,000 entries; the deadline is one second.
+ * Every question is new, so neither the search cache nor coalescing applies.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SpeculativeSearchBenchmark {
+    private static final long FAST_MILLIS = 20;
+    private static final long SLOW_MILLIS = 250;
+    private static final double SLOW_FRACTION = 0.03;
+
+    @Param({"SEQUENTIAL", "SPECULATIVE", "SPECULATIVE_HEDGED"})
+    public String mode;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ProfessionalChatbotEngine engine;
+    private List<String> words;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "stub-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            boolean slow = ThreadLocalRandom.current().nextDouble() < SLOW_FRACTION;
+            try {
+                Thread.sleep(slow ? SLOW_MILLIS : FAST_MILLIS);
+                byte[] body = "{\"AbstractText\":\"Stub answer.\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException | IOException e) {
+                // Cancelled by the client
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+
+        System.setProperty(WebSearchEngine.ENDPOINT_PROPERTY, "http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        System.setProperty(WebSearchEngine.HEDGE_PROPERTY, mode.equals("SPECULATIVE_HEDGED") ? "50" : "0");
+        engine = BenchmarkCorpus.engine(100000);
+        engine.setSearchPolicy(new SearchPolicy(
+                mode.equals("SEQUENTIAL") ? SearchPolicy.Mode.SEQUENTIAL : SearchPolicy.Mode.SPECULATIVE,
+                SearchPolicy.Priority.WEB_SEARCH, Duration.ofSeconds(1)));
+        words = BenchmarkCorpus.vocabulary(1000000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String currentInfoQuestion() {
+        String question = "latest news about cloud security and " + words.get(next++ % words.size());
+        return engine.processMessage("benchmark", question, true);
+    }
+}
@@ -0,0 +1,101 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Advanced NLP Processor for better understanding
+ */
+class AdvancedNLPProcessor {
+    // A message with a pronoun and at most this many keywords refers back ("is it hard?")
+    static final int MAX_ELLIPTICAL_KEYWORDS = 3;
+
+    private final QueryNormalizer normalizer;
+    private final PhraseClassifier classifier;
+
+    public AdvancedNLPProcessor() {
+        this(defaultSynonyms(), defaultStopWords());
+    }
+
+    /**
+     * The maps are only read while building; later changes to them have no effect.
+     */
+    public AdvancedNLPProcessor(Map<String, String> synonyms, Set<String> stopWords) {
+        normalizer = new QueryNormalizer(synonyms, stopWords);
+        classifier = PhraseClassifier.loadDefault();
+        // A custom rules file could name a type that does not exist; fail now rather than per message
+        for (String label : classifier.labels("type")) {
+            try {
+                QueryType.valueOf(label);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Classifier rule type " + label + " is not one of "
+                        + Arrays.toString(QueryType.values()), e);
+            }
+        }
+    }
+
+    static Set<String> defaultStopWords() {
+        return new HashSet<String>(Arrays.asList(
+                "the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by",
+                "is", "are", "was", "were", "be", "been", "being", "have", "has", "had", "do", "does", "did",
+                "will", "would", "could", "should", "may", "might", "must", "shall", "can", "i", "you", "he", "she", "it", "we", "they"
+        ));
+    }
+
+    static Map<String, String> defaultSynonyms() {
+        Map<String, String> synonyms = new HashMap<String, String>();
+        synonyms.put("how", "what");
+        synonyms.put("explain", "describe");
+        synonyms.put("tell", "explain");
+        synonyms.put("show", "explain");
+        synonyms.put("help", "assist");
+        synonyms.put("ai", "artificial intelligence");
+        synonyms.put("ml", "machine learning");
+        synonyms.put("programming", "coding");
+        return synonyms;
+    }
+
+    /**
+     * Whether the word is one of the stop words or synonyms.
+     */
+    public boolean isVocabularyWord(String word) {
+        return normalizer.isVocabularyWord(word);
+    }
+
+    public ProcessedQuery analyzeQuery(String input) {
+        return analyzeQuery(input, Collections.<String>emptyList());
+    }
+
+    /**
+     * Analyzes the input of a conversation whose current topic terms are given;
+     * a follow-up carries the ones it does not repeat itself. A follow-up
+     * starts with a follow-up phrase or pronoun ("what about its frameworks?",
+     * "they are fast?") or is a short message with a pronoun ("is it hard?").
+     */
+    public ProcessedQuery analyzeQuery(String input, List<String> context) {
+        // Lowercase, synonym replacement and keyword extraction in one pass
+        QueryNormalizer.Result normalized = normalizer.normalize(input);
+        String normalizedText = normalized.getNormalizedText();
+        List<String> keywords = normalized.getKeywords();
+
+        // Detect query type, intent and current-info need from a single scan
+        PhraseClassifier.Classification classification = classifier.classify(normalizedText);
+        QueryType queryType = detectQueryType(input, classification);
+        String intent = classification.label("intent", "GENERAL");
+        boolean needsCurrent = classification.label("current", null) != null;
+
+        List<String> contextTerms = Collections.<String>emptyList();
+        boolean followUp = classification.label("followup", null) != null
+                || (classification.label("reference", null) != null && keywords.size() <= MAX_ELLIPTICAL_KEYWORDS);
+        if (!context.isEmpty() && followUp) {
+            contextTerms = new ArrayList<String>(context);
+            contextTerms.removeAll(keywords);
+        }
+        return new ProcessedQuery(normalizedText, keywords, queryType, intent, needsCurrent, contextTerms);
+    }
+
+    private QueryType detectQueryType(String original, PhraseClassifier.Classification classification) {
+        if (original.contains("?")) return QueryType.QUESTION;
+        String type = classification.label("type", null);
+        return type != null ? QueryType.valueOf(type) : QueryType.STATEMENT;
+    }
+}
@@ -0,0 +1,255 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a JSONL query log through ProfessionalChatbotEngine.
+ *
+ * Each input line is {"session": "...", "message": "..."}. Sessions are hashed
+ * onto one worker per core, so different sessions run in parallel while the
+ * turns of one session keep their order. Workers read from bounded queues and
+ * results are appended to the output as they complete, so memory use does not
+ * depend on the size of the log. A worker killed by an Error fails the records
+ * of its sessions instead of stalling the reader.
+ *
+ * Usage: BatchReplay input.jsonl output.jsonl [--internet] [--threads N]
+ */
+public class BatchReplay {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final ProfessionalChatbotEngine engine;
+    private final boolean useInternet;
+    private final int threads;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile IOException writeFailure;
+
+    public BatchReplay(ProfessionalChatbotEngine engine, boolean useInternet, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.engine = engine;
+        this.useInternet = useInternet;
+        this.threads = threads;
+    }
+
+    /**
+     * Streams every record of the input through the engine and writes one
+     * result line per input line. Returns the number of records read.
+     */
+    public long replay(BufferedReader input, Writer output) throws IOException, InterruptedException {
+        ResultWriter results = new ResultWriter(output);
+        Shard[] shards = new Shard[threads];
+        for (int i = 0; i < threads; i++) {
+            shards[i] = new Shard(results);
+            shards[i].setName("replay-shard-" + i);
+            shards[i].start();
+        }
+
+        long lineNumber = 0;
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+
+                Record record;
+                try {
+                    record = Record.parse(lineNumber, line);
+                } catch (IllegalArgumentException e) {
+                    failed.incrementAndGet();
+                    results.writeError(lineNumber, e.getMessage());
+                    continue;
+                }
+                dispatch(shards[Math.floorMod(record.session.hashCode(), threads)], record, results);
+            }
+        } finally {
+            for (Shard shard : shards) {
+                while (shard.isAlive() && !shard.queue.offer(Record.END, 100, TimeUnit.MILLISECONDS)) {
+                    // Wait for room, unless the shard dies meanwhile
+                }
+            }
+            for (Shard shard : shards) {
+                shard.join();
+                failQueued(shard, results);
+            }
+            results.flush();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Blocks while the shard is behind, which bounds memory, but gives up on a
+     * shard that has died and fails the record instead.
+     */
+    private void dispatch(Shard shard, Record record, ResultWriter results) throws IOException, InterruptedException {
+        while (shard.isAlive()) {
+            if (shard.queue.offer(record, 100, TimeUnit.MILLISECONDS)) return;
+        }
+        failQueued(shard, results);
+        failed.incrementAndGet();
+        results.writeError(record.line, "Replay worker stopped: " + shard.fatal);
+    }
+
+    /**
+     * Fails the records left in the queue of a shard that is no longer running.
+     */
+    private void failQueued(Shard shard, ResultWriter results) throws IOException {
+        Record record;
+        while ((record = shard.queue.poll()) != null) {
+            if (record == Record.END) continue;
+            failed.incrementAndGet();
+            results.writeError(record.line, "Replay worker stopped: " + shard.fatal);
+        }
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private class Shard extends Thread {
+        final BlockingQueue<Record> queue = new ArrayBlockingQueue<Record>(QUEUE_CAPACITY);
+        // The Error that stopped this shard, if any
+        volatile Error fatal;
+        private final ResultWriter results;
+
+        Shard(ResultWriter results) {
+            this.results = results;
+        }
+
+        public void run() {
+            Record record = null;
+            try {
+                while ((record = queue.take()) != Record.END) {
+                    long start = System.nanoTime();
+                    try {
+                        String response = engine.processMessage(record.session, record.message, useInternet);
+                        results.writeResult(record, response, (System.nanoTime() - start) / 1000);
+                        processed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        writeErrorQuietly(record.line, String.valueOf(e.getMessage()));
+                    } catch (IOException e) {
+                        // Keep draining so the reader never blocks on a dead shard
+                        writeFailure = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Error e) {
+                fatal = e;
+                failed.incrementAndGet();
+                writeErrorQuietly(record.line, "Replay worker stopped: " + e);
+                throw e;
+            }
+        }
+
+        private void writeErrorQuietly(long line, String error) {
+            try {
+                results.writeError(line, error);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+        }
+    }
+
+    private static class Record {
+        static final Record END = new Record(0, "", "");
+
+        final long line;
+        final String session;
+        final String message;
+
+        Record(long line, String session, String message) {
+            this.line = line;
+            this.session = session;
+            this.message = message;
+        }
+
+        static Record parse(long line, String json) {
+            Map<String, Object> object = Json.parseObject(json);
+            Object session = object.get("session");
+            Object message = object.get("message");
+            if (!(session instanceof String) || !(message instanceof String)) {
+                throw new IllegalArgumentException("'session' and 'message' are required strings");
+            }
+            return new Record(line, (String) session, ((String) message).trim());
+        }
+    }
+
+    private static class ResultWriter {
+        private final Writer out;
+
+        ResultWriter(Writer out) {
+            this.out = out;
+        }
+
+        synchronized void writeResult(Record record, String response, long micros) throws IOException {
+            out.write("{\"line\":" + record.line
+                    + ",\"session\":" + Json.quote(record.session)
+                    + ",\"message\":" + Json.quote(record.message)
+                    + ",\"response\":" + Json.quote(response)
+                    + ",\"micros\":" + micros + "}\n");
+        }
+
+        synchronized void writeError(long line, String error) throws IOException {
+            out.write("{\"line\":" + line + ",\"error\":" + Json.quote(error) + "}\n");
+        }
+
+        synchronized void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchReplay input.jsonl output.jsonl [--internet] [--threads N]");
+            System.exit(2);
+        }
+        boolean useInternet = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if ("--internet".equals(args[i])) {
+                useInternet = true;
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+                if (threads < 1) {
+                    System.err.println("--threads must be at least 1");
+                    System.exit(2);
+                }
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        BatchReplay replay;
+        long start = System.nanoTime();
+        long lines;
+        try (ProfessionalChatbotEngine engine = new ProfessionalChatbotEngine();
+             BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8), 1 << 16)) {
+            engine.loadProfessionalKnowledgeBase();
+            replay = new BatchReplay(engine, useInternet, threads);
+            start = System.nanoTime();
+            lines = replay.replay(in, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Replayed %d lines (%d answered, %d failed) in %.2f s on %d threads: %.0f messages/s%n",
+                lines, replay.getProcessed(), replay.getFailed(), seconds, threads, replay.getProcessed() / seconds);
+    }
+}
@@ -0,0 +1,360 @@
+package chatbot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Professional AI Chatbot with Internet Connectivity
+ * Enhanced with intelligent response generation and web search capabilities
+ */
+public class ChatbotApplication extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private static final int TRANSCRIPT_WINDOW = 500;
+    private static final int TRANSCRIPT_PAGE = 100;
+
+    private JList<TranscriptEntry> chatList;
+    private TranscriptModel transcript;
+    private JButton earlierButton;
+    private JButton latestButton;
+    private JTextField inputField;
+    private JButton sendButton;
+    private JCheckBox internetCheckBox;
+    private ProfessionalChatbotEngine chatbotEngine;
+
+    // Messages waiting for the next EDT flush into the transcript
+    private final Queue<TranscriptEntry> pendingMessages = new ConcurrentLinkedQueue<TranscriptEntry>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // Reply currently streaming in; only touched on the EDT
+    private StreamingReply activeReply;
+
+    public ChatbotApplication() {
+        chatbotEngine = new ProfessionalChatbotEngine();
+        chatbotEngine.getMetrics().register("desktop");
+        initializeGUI();
+        loadAdvancedTrainingData();
+    }
+
+    private void initializeGUI() {
+        setTitle("Professional AI Assistant");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                // Runs before the exit, so the journal gets its checkpoint
+                try {
+                    chatbotEngine.close();
+                } catch (IOException ex) {
+                    System.err.println("Could not close the engine: " + ex.getMessage());
+                }
+            }
+        });
+        setSize(900, 700);
+        setLocationRelativeTo(null);
+
+        // Create components; the list only renders the rows that are visible
+        try {
+            transcript = new TranscriptModel(TRANSCRIPT_WINDOW, TRANSCRIPT_PAGE, TranscriptStore.createTemporary());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the transcript log", e);
+        }
+        chatList = new JList<TranscriptEntry>(transcript) {
+            public boolean getScrollableTracksViewportWidth() {
+                return true;
+            }
+        };
+        chatList.setCellRenderer(new TranscriptCellRenderer());
+        chatList.setBackground(new Color(250, 250, 252));
+        chatList.setFocusable(false);
+        chatList.addComponentListener(new ComponentAdapter() {
+            public void componentResized(ComponentEvent e) {
+                // Row heights depend on the wrap width, so drop the cached layout
+                chatList.setFixedCellHeight(1);
+                chatList.setFixedCellHeight(-1);
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(chatList);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+
+        earlierButton = new JButton("Show earlier messages");
+        earlierButton.addActionListener(e -> showEarlierMessages());
+        latestButton = new JButton("Jump to latest");
+        latestButton.addActionListener(e -> jumpToLatest());
+        JPanel historyPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        historyPanel.add(earlierButton);
+        historyPanel.add(latestButton);
+        updateHistoryButtons();
+
+        JPanel conversationPanel = new JPanel(new BorderLayout());
+        conversationPanel.add(historyPanel, BorderLayout.NORTH);
+        conversationPanel.add(scrollPane, BorderLayout.CENTER);
+        conversationPanel.setBorder(BorderFactory.createTitledBorder("Conversation"));
+
+        // Input panel with internet option
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        JPanel topInputPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+        internetCheckBox = new JCheckBox("Enable Internet Search", true);
+        internetCheckBox.setToolTipText("Allow the bot to search online for current information");
+        topInputPanel.add(internetCheckBox);
+
+        JPanel bottomInputPanel = new JPanel(new BorderLayout());
+        inputField = new JTextField();
+        inputField.setFont(new Font("Arial", Font.PLAIN, 14));
+        inputField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.GRAY),
+                BorderFactory.createEmptyBorder(5, 10, 5, 10)
+        ));
+
+        sendButton = new JButton("Send");
+        sendButton.setPreferredSize(new Dimension(80, 35));
+        sendButton.setBackground(new Color(0, 123, 255));
+        sendButton.setForeground(Color.WHITE);
+        sendButton.setFocusPainted(false);
+
+        bottomInputPanel.add(inputField, BorderLayout.CENTER);
+        bottomInputPanel.add(sendButton, BorderLayout.EAST);
+
+        inputPanel.add(topInputPanel, BorderLayout.NORTH);
+        inputPanel.add(bottomInputPanel, BorderLayout.CENTER);
+        inputPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Layout
+        setLayout(new BorderLayout());
+        add(conversationPanel, BorderLayout.CENTER);
+        add(inputPanel, BorderLayout.SOUTH);
+
+        // Event listeners
+        sendButton.addActionListener(new SendMessageListener());
+        inputField.addActionListener(new SendMessageListener());
+
+        // Professional welcome message
+        appendMessage("Assistant", "Hello! I'm your professional AI assistant. I can help you with:\n" +
+                "• General questions and information\n" +
+                "• Technical topics and programming\n" +
+                "• Current events (with internet search)\n" +
+                "• Business and professional advice\n" +
+                "• Educational content\n\n" +
+                "How may I assist you today?");
+    }
+
+    private void loadAdvancedTrainingData() {
+        chatbotEngine.loadProfessionalKnowledgeBase();
+        appendMessage("System", "Professional knowledge base loaded. Ready to assist!");
+    }
+
+    /**
+     * Queues a message for the transcript. Safe from any thread; all messages
+     * queued before the next EDT turn are added in one model update.
+     */
+    private void appendMessage(String sender, String message) {
+        pendingMessages.add(new TranscriptEntry(System.currentTimeMillis(), sender, message));
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flushPendingMessages);
+        }
+    }
+
+    private void flushPendingMessages() {
+        flushScheduled.set(false);
+        List<TranscriptEntry> batch = new ArrayList<TranscriptEntry>();
+        TranscriptEntry entry;
+        while ((entry = pendingMessages.poll()) != null) {
+            batch.add(entry);
+        }
+
+        boolean following = transcript.isAtLatest();
+        if (activeReply != null && activeReply.isFinished()) {
+            // The finished reply replaces its in-progress row
+            transcript.setPending(null);
+            batch.add(new TranscriptEntry(activeReply.startedAt, "Assistant", activeReply.finalText()));
+            activeReply = null;
+        }
+        if (!batch.isEmpty()) {
+            try {
+                transcript.append(batch);
+            } catch (IOException e) {
+                System.err.println("Could not write the transcript log: " + e.getMessage());
+            }
+        }
+        if (activeReply != null) {
+            String partial = activeReply.partialText();
+            if (!partial.isEmpty()) {
+                transcript.setPending(new TranscriptEntry(activeReply.startedAt, "Assistant", partial));
+            }
+        }
+        if (following && transcript.getSize() > 0) {
+            chatList.ensureIndexIsVisible(transcript.getSize() - 1);
+        }
+        updateHistoryButtons();
+    }
+
+    private void showEarlierMessages() {
+        try {
+            int added = transcript.pageEarlier();
+            if (added > 0) {
+                chatList.ensureIndexIsVisible(0);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read the transcript log: " + e.getMessage());
+        }
+        updateHistoryButtons();
+    }
+
+    private void jumpToLatest() {
+        try {
+            transcript.jumpToLatest();
+            if (transcript.getSize() > 0) {
+                chatList.ensureIndexIsVisible(transcript.getSize() - 1);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read the transcript log: " + e.getMessage());
+        }
+        updateHistoryButtons();
+    }
+
+    private void updateHistoryButtons() {
+        earlierButton.setEnabled(transcript.hasEarlier());
+        latestButton.setEnabled(!transcript.isAtLatest());
+    }
+
+    /**
+     * Renders one transcript message as wrapped text sized to the list width.
+     */
+    private static class TranscriptCellRenderer extends JTextArea implements ListCellRenderer<TranscriptEntry> {
+        private static final long serialVersionUID = 1L;
+
+        TranscriptCellRenderer() {
+            setLineWrap(true);
+            setWrapStyleWord(true);
+            setEditable(false);
+            setFont(new Font("Arial", Font.PLAIN, 13));
+            setBorder(BorderFactory.createEmptyBorder(6, 15, 6, 15));
+        }
+
+        public Component getListCellRendererComponent(JList<? extends TranscriptEntry> list, TranscriptEntry value,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            setText(value.getDisplayText());
+            setBackground(list.getBackground());
+            // Fixing the width first makes the preferred height follow the wrapped lines
+            int width = list.getWidth() > 0 ? list.getWidth() : 600;
+            setSize(width, Short.MAX_VALUE);
+            return this;
+        }
+    }
+
+    private class SendMessageListener implements ActionListener {
+        public void actionPerformed(ActionEvent e) {
+            String userInput = inputField.getText().trim();
+            if (!userInput.isEmpty()) {
+                // A new message supersedes a reply that is still streaming in
+                if (activeReply != null) {
+                    activeReply.cancel();
+                    transcript.setPending(null);
+                    appendMessage("Assistant", activeReply.finalText());
+                    activeReply = null;
+                }
+                appendMessage("You", userInput);
+                inputField.setText("");
+                inputField.requestFocus();
+
+                activeReply = new StreamingReply();
+                chatbotEngine.streamMessage(ProfessionalChatbotEngine.DEFAULT_SESSION, userInput,
+                        internetCheckBox.isSelected()).subscribe(activeReply);
+            }
+        }
+    }
+
+    /**
+     * Collects the chunks of one reply and schedules an EDT flush per chunk;
+     * flushes that land on the same EDT turn are merged.
+     */
+    private class StreamingReply implements Flow.Subscriber<String> {
+        final long startedAt = System.currentTimeMillis();
+        private final StringBuilder text = new StringBuilder();
+        private Flow.Subscription subscription;
+        private volatile boolean finished;
+        private volatile boolean failed;
+        private volatile boolean busy;
+        private volatile boolean cancelled;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        public void onNext(String chunk) {
+            synchronized (text) {
+                text.append(chunk);
+            }
+            scheduleFlush();
+            subscription.request(1);
+        }
+
+        public void onError(Throwable error) {
+            busy = ProfessionalChatbotEngine.isBusy(error);
+            failed = true;
+            finished = true;
+            scheduleFlush();
+        }
+
+        public void onComplete() {
+            finished = true;
+            scheduleFlush();
+        }
+
+        void cancel() {
+            if (finished) return;
+            cancelled = true;
+            finished = true;
+            subscription.cancel();
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        String partialText() {
+            synchronized (text) {
+                return text.toString();
+            }
+        }
+
+        String finalText() {
+            if (busy) {
+                return ProfessionalChatbotEngine.BUSY_RESPONSE;
+            }
+            if (failed) {
+                return "I apologize, but I encountered an error processing your request. Please try again.";
+            }
+            String partial = partialText();
+            if (cancelled) {
+                return partial.isEmpty() ? "(reply cancelled)" : partial + " … (interrupted)";
+            }
+            return partial;
+        }
+    }
+
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                new ChatbotApplication().setVisible(true);
+            }
+        });
+    }
+}
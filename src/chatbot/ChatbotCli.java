@@ -0,0 +1,209 @@
+package chatbot;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless line protocol for ProfessionalChatbotEngine over stdin and stdout,
+ * for scripts and sidecars. Never touches AWT or Swing.
+ *
+ * Each input line is {"id": ..., "session": "...", "message": "...", "internet": false};
+ * id and internet are optional. Each answer is one output line,
+ * {"id": ..., "session": "...", "response": "..."} or {"id": ..., "error": "..."}.
+ * Requests are pipelined onto the engine's session executor: turns of one
+ * session are answered in order, different sessions run in parallel and may
+ * overtake each other, so match answers by id. Reading pauses while the
+ * shard of the next session is full. Output is flushed whenever no further
+ * answer is ready.
+ *
+ * Usage: ChatbotCli [--internet] [--stats]
+ * --internet makes it the default for requests that do not say; --stats
+ * prints startup, time to first response and throughput to stderr at exit.
+ *
+ * The entry point is its own class because loading ChatbotApplication, a
+ * JFrame, would load AWT. The web search client is only built on the first
+ * search, so a session that never searches does not pay for the TLS stack.
+ * Most of the remaining startup is class loading and interpretation, which
+ * an AppCDS archive (JDK 13+) and the C1-only JIT cut down:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=chatbot.jsa -cp ai-chatbot.jar chatbot.ChatbotCli &lt; sample.jsonl
+ * java -XX:SharedArchiveFile=chatbot.jsa -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+ *      -cp ai-chatbot.jar chatbot.ChatbotCli
+ * </pre>
+ * Leave out the last two flags for long-running pipes, where C2 pays off.
+ */
+public class ChatbotCli {
+    private static final String END = new String("end");
+
+    private final ProfessionalChatbotEngine engine;
+    private final boolean defaultInternet;
+    private final BlockingQueue<String> output = new LinkedBlockingQueue<String>();
+    private final AtomicLong answered = new AtomicLong();
+    private volatile long firstAnswerNanos;
+
+    public ChatbotCli(ProfessionalChatbotEngine engine, boolean defaultInternet) {
+        this.engine = engine;
+        this.defaultInternet = defaultInternet;
+    }
+
+    /**
+     * Answers every request of the input and returns once all answers are written.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        Thread writer = new Thread(() -> drain(out), "cli-writer");
+        writer.start();
+
+        List<CompletableFuture<Void>> pending = new ArrayList<CompletableFuture<Void>>();
+        String line;
+        try {
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                CompletableFuture<Void> written = submit(line);
+                if (!written.isDone()) {
+                    pending.add(written);
+                }
+                if (pending.size() > 1024) {
+                    pending.removeIf(CompletableFuture::isDone);
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            output.put(END);
+            writer.join();
+        }
+    }
+
+    private CompletableFuture<Void> submit(String line) throws InterruptedException {
+        Map<String, Object> request;
+        try {
+            request = Json.parseObject(line);
+        } catch (IllegalArgumentException e) {
+            emit("{\"error\":" + Json.quote(e.getMessage()) + "}");
+            return CompletableFuture.completedFuture(null);
+        }
+        String id = idOf(request.get("id"));
+        Object session = request.get("session");
+        Object message = request.get("message");
+        if (!(message instanceof String) || ((String) message).trim().isEmpty()
+                || (session != null && !(session instanceof String))) {
+            emit("{" + id + "\"error\":\"'message' is required and 'session' must be a string\"}");
+            return CompletableFuture.completedFuture(null);
+        }
+        String sessionId = session == null ? ProfessionalChatbotEngine.DEFAULT_SESSION : (String) session;
+        String text = ((String) message).trim();
+        Object internet = request.get("internet");
+        boolean useInternet = internet instanceof Boolean ? (Boolean) internet : defaultInternet;
+
+        // Waits when the session's shard is full, so a fast producer is slowed down instead of refused
+        CompletableFuture<String> response = engine.getSessionExecutor().submitBlocking(sessionId,
+                () -> engine.processMessageAsync(sessionId, text, useInternet));
+        return response.handle((reply, error) -> {
+            if (error == null) {
+                emit("{" + id + "\"session\":" + Json.quote(sessionId) + ",\"response\":" + Json.quote(reply) + "}");
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                emit("{" + id + "\"error\":" + Json.quote(String.valueOf(cause.getMessage())) + "}");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The id member to echo, with its trailing comma, or "" without an id.
+     */
+    private static String idOf(Object id) {
+        if (id instanceof String) {
+            return "\"id\":" + Json.quote((String) id) + ",";
+        }
+        if (id instanceof Double) {
+            double value = (Double) id;
+            return "\"id\":" + (value == Math.rint(value) && !Double.isInfinite(value)
+                    ? Long.toString((long) value) : Double.toString(value)) + ",";
+        }
+        return "";
+    }
+
+    private void emit(String json) {
+        if (answered.getAndIncrement() == 0) {
+            firstAnswerNanos = System.nanoTime();
+        }
+        output.add(json);
+    }
+
+    private void drain(Writer out) {
+        try {
+            String line;
+            while ((line = output.take()) != END) {
+                out.write(line);
+                out.write('\n');
+                // Flush only once the answers that are ready have all been written
+                if (output.isEmpty()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Stdout is gone; nobody is left to answer
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAnswered() {
+        return answered.get();
+    }
+
+    public long getFirstAnswerNanos() {
+        return firstAnswerNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long mainStart = System.nanoTime();
+        boolean useInternet = false;
+        boolean stats = false;
+        for (String arg : args) {
+            if ("--internet".equals(arg)) {
+                useInternet = true;
+            } else if ("--stats".equals(arg)) {
+                stats = true;
+            } else {
+                System.err.println("Usage: ChatbotCli [--internet] [--stats]");
+                System.exit(2);
+            }
+        }
+
+        ProfessionalChatbotEngine engine = new ProfessionalChatbotEngine();
+        engine.loadProfessionalKnowledgeBase();
+        long ready = System.nanoTime();
+
+        ChatbotCli cli = new ChatbotCli(engine, useInternet);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+        try {
+            cli.run(in, out);
+        } finally {
+            engine.close();
+        }
+        long end = System.nanoTime();
+
+        if (stats) {
+            // Read only now: the management classes would add to the startup being measured
+            long jvmMillis = System.currentTimeMillis() - (end - mainStart) / 1000000
+                    - ManagementFactory.getRuntimeMXBean().getStartTime();
+            long first = cli.getFirstAnswerNanos();
+            System.err.printf(Locale.ROOT,
+                    "jvm start to main %d ms, engine ready %.1f ms, first response %.1f ms, %d answers, %.0f answers/s after the first%n",
+                    jvmMillis, (ready - mainStart) / 1e6, first == 0 ? 0 : (first - mainStart) / 1e6, cli.getAnswered(),
+                    first == 0 || cli.getAnswered() < 2 ? 0 : (cli.getAnswered() - 1) / ((end - first) / 1e9));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,340 @@
+package chatbot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless HTTP front end for ProfessionalChatbotEngine
+ *
+ * POST /chat with {"session": "...", "message": "...", "internet": false}
+ * returns {"session": "...", "response": "..."}.
+ * POST /chat/stream takes the same body and answers with server-sent events:
+ * one {"chunk": "..."} event per response chunk, then a "done" event.
+ * Turns run on the engine's session executor; when the session's shard is
+ * full, /chat answers 503 with {"error": "busy", "response": "..."} and the
+ * stream ends with an error event carrying "busy". While a stream waits for its
+ * first chunk it writes a comment line every few seconds, so a client that has
+ * gone away is noticed and its turn cancelled. Request bodies over 64 KB are
+ * refused with 413.
+ * GET /metrics returns the pipeline metrics as plain text.
+ */
+public class ChatbotServer {
+    static final int MAX_BODY_BYTES = 64 * 1024;
+    static final long HEARTBEAT_MILLIS = 5000;
+    static final long WRITE_TIMEOUT_MILLIS = 30000;
+
+    private final ProfessionalChatbotEngine engine;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long heartbeatMillis;
+    private final long writeTimeoutMillis;
+
+    public ChatbotServer(ProfessionalChatbotEngine engine, int port) throws IOException {
+        this(engine, port, HEARTBEAT_MILLIS, WRITE_TIMEOUT_MILLIS);
+    }
+
+    ChatbotServer(ProfessionalChatbotEngine engine, int port, long heartbeatMillis, long writeTimeoutMillis)
+            throws IOException {
+        this.engine = engine;
+        this.heartbeatMillis = heartbeatMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.executor = ProfessionalChatbotEngine.newTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/chat", new ChatHandler());
+        server.createContext("/chat/stream", new StreamHandler());
+        server.createContext("/health", new HealthHandler());
+        server.createContext("/metrics", new MetricsHandler());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private class ChatHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                ChatRequest request = readChatRequest(exchange);
+                if (request == null) return;
+
+                String response = engine.submitMessage(request.session, request.message, request.useInternet).join();
+                sendJson(exchange, 200, "{\"session\":" + Json.quote(request.session)
+                        + ",\"response\":" + Json.quote(response) + "}");
+            } catch (RuntimeException e) {
+                if (ProfessionalChatbotEngine.isBusy(e)) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendJson(exchange, 503, "{\"error\":\"busy\",\"response\":"
+                            + Json.quote(ProfessionalChatbotEngine.BUSY_RESPONSE) + "}");
+                } else {
+                    sendJson(exchange, 500, "{\"error\":\"Internal error\"}");
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private class StreamHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                ChatRequest request = readChatRequest(exchange);
+                if (request == null) return;
+
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, 0);
+                EventWriter events = new EventWriter(exchange.getResponseBody(), heartbeatMillis, writeTimeoutMillis);
+                engine.streamMessage(request.session, request.message, request.useInternet).subscribe(events);
+                events.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Writes each chunk as a server-sent event and asks for the next one only
+     * after the write has gone through, so a slow client slows the stream down.
+     * A failed write cancels the stream; await() writes heartbeats while the
+     * stream is idle so that a disconnect is seen even before the first chunk,
+     * and gives up on a client whose write has been stuck past the timeout.
+     * The heartbeat never waits for the write lock: while a chunk holds it the
+     * keepalive is skipped, so a write stalled on the client cannot stall the
+     * timeout check too.
+     */
+    private static class EventWriter implements Flow.Subscriber<String> {
+        private final OutputStream out;
+        private final long heartbeatMillis;
+        private final long writeTimeoutNanos;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        // System.nanoTime() when the write in progress began, or 0
+        private volatile long writeStarted;
+
+        EventWriter(OutputStream out, long heartbeatMillis, long writeTimeoutMillis) {
+            this.out = out;
+            this.heartbeatMillis = heartbeatMillis;
+            this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        public void onNext(String chunk) {
+            try {
+                write("data: {\"chunk\":" + Json.quote(chunk) + "}\n\n");
+                subscription.request(1);
+            } catch (IOException e) {
+                cancel();
+            }
+        }
+
+        public void onError(Throwable error) {
+            try {
+                write(ProfessionalChatbotEngine.isBusy(error)
+                        ? "event: error\ndata: {\"error\":\"busy\"}\n\n"
+                        : "event: error\ndata: {\"error\":\"Internal error\"}\n\n");
+            } catch (IOException ignored) {
+                // The client is gone; nothing left to tell it
+            }
+            finished.countDown();
+        }
+
+        public void onComplete() {
+            try {
+                write("event: done\ndata: {}\n\n");
+            } catch (IOException ignored) {
+                // The client is gone; nothing left to tell it
+            }
+            finished.countDown();
+        }
+
+        void await() throws InterruptedException {
+            while (!finished.await(heartbeatMillis, TimeUnit.MILLISECONDS)) {
+                long started = writeStarted;
+                if (started != 0 && System.nanoTime() - started > writeTimeoutNanos) {
+                    cancel();
+                    continue;
+                }
+                if (!writeLock.tryLock()) continue;
+                try {
+                    writeEvent(": keepalive\n\n");
+                } catch (IOException e) {
+                    cancel();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+
+        private void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            finished.countDown();
+        }
+
+        private void write(String event) throws IOException {
+            writeLock.lock();
+            try {
+                writeEvent(event);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        // Only with writeLock held
+        private void writeEvent(String event) throws IOException {
+            writeStarted = System.nanoTime();
+            try {
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } finally {
+                writeStarted = 0;
+            }
+        }
+    }
+
+    private static class ChatRequest {
+        final String session;
+        final String message;
+        final boolean useInternet;
+
+        ChatRequest(String session, String message, boolean useInternet) {
+            this.session = session;
+            this.message = message;
+            this.useInternet = useInternet;
+        }
+    }
+
+    /**
+     * Parses a chat request body, or sends the error response and returns null.
+     */
+    private static ChatRequest readChatRequest(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendJson(exchange, 405, "{\"error\":\"Use POST\"}");
+            return null;
+        }
+
+        String body = readBody(exchange);
+        if (body == null) {
+            sendJson(exchange, 413, "{\"error\":\"Request body exceeds " + MAX_BODY_BYTES + " bytes\"}");
+            return null;
+        }
+        Map<String, Object> request;
+        try {
+            request = Json.parseObject(body);
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, "{\"error\":" + Json.quote(e.getMessage()) + "}");
+            return null;
+        }
+
+        Object session = request.get("session");
+        Object message = request.get("message");
+        if (!(session instanceof String) || !(message instanceof String)
+                || ((String) message).trim().isEmpty()) {
+            sendJson(exchange, 400, "{\"error\":\"'session' and 'message' are required strings\"}");
+            return null;
+        }
+        return new ChatRequest((String) session, ((String) message).trim(), Boolean.TRUE.equals(request.get("internet")));
+    }
+
+    private class HealthHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                sendJson(exchange, 200, "{\"status\":\"ok\"}");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private class MetricsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] bytes = engine.getMetrics().dump().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * The request body, or null when it is longer than MAX_BODY_BYTES.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > MAX_BODY_BYTES) return null;
+            } catch (NumberFormatException e) {
+                // Leave it to the read below
+            }
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) return null;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+
+        ProfessionalChatbotEngine engine = new ProfessionalChatbotEngine();
+        engine.loadProfessionalKnowledgeBase();
+        engine.getMetrics().register("server");
+
+        ChatbotServer server = new ChatbotServer(engine, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                engine.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the engine: " + e.getMessage());
+            }
+        }, "server-shutdown"));
+        server.start();
+        System.out.println("Chatbot server listening on port " + server.getPort());
+    }
+}
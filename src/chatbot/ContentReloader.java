@@ -0,0 +1,190 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a content directory and reloads the engine when one of its files
+ * changes. Events are collected until the directory has been quiet for
+ * QUIET_MILLIS, so an editor save or a copy of several files causes one
+ * reload. A reload that fails keeps the engine on its current snapshot.
+ *
+ * Content files, all optional (UTF-8; blank lines and lines starting with #
+ * are ignored):
+ * <pre>
+ * synonyms.txt             word = replacement (the replacement may be a phrase)
+ * stopwords.txt            words separated by whitespace
+ * responses.txt            INTENT: intro line, one line per intro
+ * knowledge.tsv or .csv    topic/answer rows as read by KnowledgeBaseBuilder
+ * knowledge.kb             compiled corpus from KnowledgeBaseBuilder
+ * </pre>
+ */
+class ContentReloader implements Closeable {
+    static final long QUIET_MILLIS = 200;
+
+    static final String SYNONYMS_FILE = "synonyms.txt";
+    static final String STOP_WORDS_FILE = "stopwords.txt";
+    static final String RESPONSES_FILE = "responses.txt";
+    static final String KNOWLEDGE_TSV_FILE = "knowledge.tsv";
+    static final String KNOWLEDGE_CSV_FILE = "knowledge.csv";
+    static final String CORPUS_FILE = "knowledge.kb";
+
+    private static final Set<String> CONTENT_FILES = new HashSet<String>(Arrays.asList(
+            SYNONYMS_FILE, STOP_WORDS_FILE, RESPONSES_FILE, KNOWLEDGE_TSV_FILE, KNOWLEDGE_CSV_FILE, CORPUS_FILE));
+
+    private final Path directory;
+    private final ProfessionalChatbotEngine engine;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    private ContentReloader(Path directory, ProfessionalChatbotEngine engine) throws IOException {
+        this.directory = directory;
+        this.engine = engine;
+        this.watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "content-reloader");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching; the engine is expected to have loaded the directory already.
+     */
+    public static ContentReloader watch(Path directory, ProfessionalChatbotEngine engine) throws IOException {
+        ContentReloader reloader = new ContentReloader(directory, engine);
+        reloader.thread.start();
+        return reloader;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = drain(watcher.take());
+                // Wait until the directory has been quiet for a while
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (!changed) continue;
+                try {
+                    engine.reload();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not reload content from " + directory + ": " + e.getMessage());
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private static boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && CONTENT_FILES.contains(context.toString()));
+        }
+        key.reset();
+        return changed;
+    }
+
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    /**
+     * Reads every content file present in the directory.
+     */
+    static Content read(Path directory) throws IOException {
+        Content content = new Content();
+        Path synonyms = directory.resolve(SYNONYMS_FILE);
+        if (Files.exists(synonyms)) {
+            content.synonyms = new HashMap<String, String>();
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(synonyms, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                if (skip(line)) continue;
+                int equals = line.indexOf('=');
+                String word = equals < 0 ? "" : line.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+                String replacement = equals < 0 ? "" : line.substring(equals + 1).trim().toLowerCase(Locale.ROOT);
+                if (word.isEmpty() || replacement.isEmpty()) {
+                    throw new IOException(synonyms + " line " + lineNumber + ": expected word = replacement");
+                }
+                if (!QueryNormalizer.isWord(word)) {
+                    // The input is rewritten word by word, so a phrase would never match
+                    throw new IOException(synonyms + " line " + lineNumber + ": '" + word + "' is not a single word");
+                }
+                content.synonyms.put(word, replacement);
+            }
+        }
+
+        Path stopWords = directory.resolve(STOP_WORDS_FILE);
+        if (Files.exists(stopWords)) {
+            content.stopWords = new HashSet<String>();
+            for (String line : Files.readAllLines(stopWords, StandardCharsets.UTF_8)) {
+                if (skip(line)) continue;
+                for (String word : line.trim().split("\\s+")) {
+                    content.stopWords.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        Path responses = directory.resolve(RESPONSES_FILE);
+        if (Files.exists(responses)) {
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(responses, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                if (skip(line)) continue;
+                int colon = line.indexOf(':');
+                String intent = colon < 0 ? "" : line.substring(0, colon).trim().toUpperCase(Locale.ROOT);
+                String text = colon < 0 ? "" : line.substring(colon + 1).trim();
+                if (intent.isEmpty() || text.isEmpty()) {
+                    throw new IOException(responses + " line " + lineNumber + ": expected INTENT: text");
+                }
+                List<String> intros = content.responses.get(intent);
+                if (intros == null) {
+                    intros = new ArrayList<String>();
+                    content.responses.put(intent, intros);
+                }
+                intros.add(text);
+            }
+        }
+
+        for (String name : new String[] {KNOWLEDGE_TSV_FILE, KNOWLEDGE_CSV_FILE}) {
+            Path knowledge = directory.resolve(name);
+            if (Files.exists(knowledge)) {
+                KnowledgeBaseBuilder.readCorpus(knowledge, content.knowledge::put);
+            }
+        }
+
+        Path corpus = directory.resolve(CORPUS_FILE);
+        if (Files.exists(corpus)) {
+            content.corpus = MappedKnowledgeBase.open(corpus);
+        }
+        return content;
+    }
+
+    private static boolean skip(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+
+    /**
+     * Parsed content files. Tables whose file is missing are null (synonyms,
+     * stop words, corpus) or empty (responses, knowledge).
+     */
+    static class Content {
+        Map<String, String> synonyms;
+        Set<String> stopWords;
+        final Map<String, List<String>> responses = new HashMap<String, List<String>>();
+        final Map<String, String> knowledge = new LinkedHashMap<String, String>();
+        MappedKnowledgeBase corpus;
+    }
+}
@@ -0,0 +1,96 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Decaying topic vector of one conversation, used to resolve follow-ups such
+ * as "what about its frameworks?" against the topics of earlier turns.
+ *
+ * Every turn multiplies the existing weights by DECAY and adds one to each of
+ * its topic terms. The vector holds at most CAPACITY terms, dropping the
+ * weakest, so a turn costs the same however long the conversation is.
+ * Not thread-safe; ConversationMemory guards it.
+ */
+class ConversationContext {
+    static final int CAPACITY = 16;
+    static final double DECAY = 0.4;
+    static final double MIN_WEIGHT = 0.05;
+    static final int TOP_TERMS = 3;
+
+    private final String[] terms = new String[CAPACITY];
+    private final double[] weights = new double[CAPACITY];
+    private int size;
+
+    /**
+     * Ages the vector by one turn and adds the turn's topic terms.
+     */
+    public void observe(Collection<String> turnTerms) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            double weight = weights[i] * DECAY;
+            if (weight >= MIN_WEIGHT) {
+                terms[kept] = terms[i];
+                weights[kept++] = weight;
+            }
+        }
+        for (int i = kept; i < size; i++) {
+            terms[i] = null;
+        }
+        size = kept;
+
+        for (String term : turnTerms) {
+            int slot = indexOf(term);
+            if (slot < 0) {
+                slot = size < CAPACITY ? size++ : weakest();
+                terms[slot] = term;
+                weights[slot] = 0;
+            }
+            weights[slot] += 1;
+        }
+    }
+
+    /**
+     * Up to TOP_TERMS terms, strongest first, whose weight is more than half
+     * the strongest; older topics drop out once a newer one dominates.
+     */
+    public List<String> topTerms() {
+        List<String> top = new ArrayList<String>(TOP_TERMS);
+        boolean[] taken = new boolean[size];
+        double strongest = 0;
+        while (top.size() < TOP_TERMS) {
+            // Equal weights keep their slot order
+            int next = -1;
+            for (int i = 0; i < size; i++) {
+                if (!taken[i] && (next < 0 || weights[i] > weights[next])) {
+                    next = i;
+                }
+            }
+            if (next < 0 || weights[next] <= strongest / 2) break;
+            strongest = Math.max(strongest, weights[next]);
+            taken[next] = true;
+            top.add(terms[next]);
+        }
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int weakest() {
+        int weakest = 0;
+        for (int i = 1; i < size; i++) {
+            if (weights[i] < weights[weakest]) {
+                weakest = i;
+            }
+        }
+        return weakest;
+    }
+
+    private int indexOf(String term) {
+        for (int i = 0; i < size; i++) {
+            if (terms[i].equals(term)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,640 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durable append-only journal of conversation turns.
+ *
+ * Turns go to numbered segment files. Every record carries the position of
+ * the previous record of the same session, so the recent turns of a session
+ * are read by walking back from its newest record instead of replaying the
+ * journal. The newest record of every session is kept in memory and saved
+ * to a checkpoint file now and then; opening the journal loads the
+ * checkpoint and only scans the records written after it. A torn record at
+ * the end of the journal is cut off.
+ *
+ * Only the newest maxSegments segments are kept: when a segment is rolled,
+ * the oldest one beyond that is deleted, together with the heads of the
+ * sessions whose newest record was in it. Disk use stays under
+ * maxSegments * segmentBytes and the heads only cover sessions active within
+ * that window; a session's turns in deleted segments are no longer returned.
+ *
+ * Record layout: [int payload length][int CRC32C of payload]
+ * [long previous position][byte role][int session length][session]
+ * [int text length][text]. A position is the segment number in the high 32
+ * bits and the offset in the low 32 bits.
+ */
+class ConversationJournal implements Closeable {
+    public static final String DIR_PROPERTY = "chatbot.journal.dir";
+    public static final String DURABILITY_PROPERTY = "chatbot.journal.durability";
+    public static final String SYNC_MILLIS_PROPERTY = "chatbot.journal.syncMillis";
+    public static final String SEGMENT_BYTES_PROPERTY = "chatbot.journal.segmentBytes";
+    public static final String CHECKPOINT_RECORDS_PROPERTY = "chatbot.journal.checkpointRecords";
+    public static final String MAX_SEGMENTS_PROPERTY = "chatbot.journal.maxSegments";
+
+    private static final int HEADER_BYTES = 8;
+    private static final int CHECKPOINT_MAGIC = 0x434A4350;
+    private static final String CHECKPOINT_FILE = "heads.chk";
+    private static final long NO_RECORD = -1;
+    private static final int SCAN_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * When an appended turn is forced to disk.
+     */
+    public enum Durability {
+        /** Never forced while running; the OS writes it back. Lost on power failure. */
+        ASYNC,
+        /** Forced by a background thread every sync interval; append does not wait. */
+        GROUP,
+        /** Append returns once the turn is forced. Concurrent appends share one fsync. */
+        SYNC
+    }
+
+    public enum Role { USER, ASSISTANT }
+
+    public static class Turn {
+        private final Role role;
+        private final String text;
+
+        Turn(Role role, String text) {
+            this.role = role;
+            this.text = text;
+        }
+
+        public Role getRole() { return role; }
+        public String getText() { return text; }
+    }
+
+    private final Path directory;
+    private final Durability durability;
+    private final long syncIntervalMillis;
+    private final int segmentBytes;
+    private final long checkpointRecords;
+    private final int maxSegments;
+
+    // Newest record position per session, for sessions with a record in a kept segment
+    private final ConcurrentHashMap<String, Long> heads = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentHashMap<Integer, FileChannel> readers = new ConcurrentHashMap<Integer, FileChannel>();
+
+    // Guards the current segment and the write position
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileChannel segment;
+    private int segmentNumber;
+    private int segmentOffset;
+    private long writtenRecords;
+    private long recordsAtCheckpoint;
+    // Oldest segment that has not been deleted
+    private volatile int firstSegment = 1;
+
+    // Group commit: one thread forces at a time, the others wait for its result
+    private final Object syncMonitor = new Object();
+    private boolean syncing;
+    private long syncedRecords;
+    private IOException syncFailure;
+
+    private final Thread maintenance;
+    private volatile boolean closed;
+    private final long recoveredRecords;
+    private final long recoveryNanos;
+
+    private ConversationJournal(Path directory, Durability durability, long syncIntervalMillis, int segmentBytes,
+                                long checkpointRecords, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.segmentBytes = segmentBytes;
+        this.checkpointRecords = checkpointRecords;
+        this.maxSegments = maxSegments;
+
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        recoveredRecords = recover();
+        recoveryNanos = System.nanoTime() - start;
+
+        maintenance = new Thread(this::runMaintenance, "journal-maintenance");
+        maintenance.setDaemon(true);
+        maintenance.start();
+    }
+
+    public static ConversationJournal open(Path directory, Durability durability, long syncIntervalMillis,
+                                           int segmentBytes, long checkpointRecords, int maxSegments)
+            throws IOException {
+        if (segmentBytes < 1024 || syncIntervalMillis < 1 || checkpointRecords < 1 || maxSegments < 1) {
+            throw new IllegalArgumentException("Journal limits must be positive");
+        }
+        return new ConversationJournal(directory, durability, syncIntervalMillis, segmentBytes, checkpointRecords,
+                maxSegments);
+    }
+
+    /**
+     * Opens the journal named by -Dchatbot.journal.dir, or returns null when
+     * journaling is not configured.
+     */
+    public static ConversationJournal fromSystemProperties() throws IOException {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null) return null;
+        return open(Paths.get(dir),
+                Durability.valueOf(System.getProperty(DURABILITY_PROPERTY, "GROUP").toUpperCase(Locale.ROOT)),
+                Long.getLong(SYNC_MILLIS_PROPERTY, 10L),
+                Integer.getInteger(SEGMENT_BYTES_PROPERTY, 64 * 1024 * 1024),
+                Long.getLong(CHECKPOINT_RECORDS_PROPERTY, 1000000L),
+                Integer.getInteger(MAX_SEGMENTS_PROPERTY, 8));
+    }
+
+    public void append(String sessionId, Role role, String text) throws IOException {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = 8 + 1 + 4 + session.length + 4 + body.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        record.putInt(payloadLength).putInt(0);
+
+        long sequence;
+        writeLock.lock();
+        try {
+            if (closed) throw new ClosedChannelException();
+            if (segmentOffset + record.capacity() > segmentBytes && segmentOffset > 0) {
+                rollSegment();
+            }
+            long position = position(segmentNumber, segmentOffset);
+            record.putLong(heads.getOrDefault(sessionId, NO_RECORD)).put((byte) role.ordinal())
+                    .putInt(session.length).put(session).putInt(body.length).put(body);
+            CRC32C crc = new CRC32C();
+            crc.update(record.array(), HEADER_BYTES, payloadLength);
+            record.putInt(4, (int) crc.getValue());
+            record.flip();
+
+            writeFully(segment, record, segmentOffset);
+            segmentOffset += record.capacity();
+            heads.put(sessionId, position);
+            sequence = ++writtenRecords;
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (durability == Durability.SYNC) {
+            awaitSync(sequence);
+        }
+    }
+
+    /**
+     * The newest turns of a session in the order they were written, at most
+     * maxTurns. Turns in deleted segments are not returned.
+     */
+    public List<Turn> recentTurns(String sessionId, int maxTurns) throws IOException {
+        LinkedList<Turn> turns = new LinkedList<Turn>();
+        Long head = heads.get(sessionId);
+        long position = head == null ? NO_RECORD : head;
+        while (position != NO_RECORD && turns.size() < maxTurns && segmentOf(position) >= firstSegment) {
+            ByteBuffer payload;
+            try {
+                payload = readRecord(reader(segmentOf(position)), offsetOf(position));
+            } catch (ClosedChannelException | NoSuchFileException e) {
+                // Deleted while we were walking back through it
+                if (segmentOf(position) < firstSegment) break;
+                throw e;
+            }
+            if (payload == null) {
+                throw new IOException("Corrupt journal record at segment " + segmentOf(position)
+                        + " offset " + offsetOf(position));
+            }
+            position = payload.getLong();
+            Role role = Role.values()[payload.get()];
+            skipString(payload);
+            turns.addFirst(new Turn(role, readString(payload)));
+        }
+        return turns;
+    }
+
+    public long sessions() {
+        return heads.size();
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(recoveryNanos);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    public void sync() throws IOException {
+        long target;
+        writeLock.lock();
+        try {
+            target = writtenRecords;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitSync(target);
+    }
+
+    /**
+     * Forces the journal, writes a checkpoint and closes every file.
+     */
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            writeLock.unlock();
+        }
+        // Unpark rather than interrupt: an interrupt would close the channel it is using
+        LockSupport.unpark(maintenance);
+        try {
+            maintenance.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.force(false);
+        writeCheckpoint();
+        segment.close();
+        for (FileChannel channel : readers.values()) {
+            channel.close();
+        }
+    }
+
+    private void awaitSync(long sequence) throws IOException {
+        synchronized (syncMonitor) {
+            while (syncing) {
+                if (syncedRecords >= sequence) return;
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal to sync");
+                }
+            }
+            if (syncFailure != null) throw syncFailure;
+            if (syncedRecords >= sequence) return;
+            syncing = true;
+        }
+
+        // Leader: everything written so far goes out with one force
+        long target;
+        FileChannel channel;
+        writeLock.lock();
+        try {
+            target = writtenRecords;
+            channel = segment;
+        } finally {
+            writeLock.unlock();
+        }
+        IOException failure = null;
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // The segment was rolled, and rolling forced it
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        synchronized (syncMonitor) {
+            syncing = false;
+            if (failure != null) {
+                syncFailure = failure;
+            } else {
+                syncedRecords = Math.max(syncedRecords, target);
+            }
+            syncMonitor.notifyAll();
+        }
+        if (failure != null) throw failure;
+    }
+
+    private void runMaintenance() {
+        while (!closed) {
+            try {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis));
+                if (closed) return;
+                if (durability == Durability.GROUP) {
+                    sync();
+                }
+                long written;
+                writeLock.lock();
+                try {
+                    written = writtenRecords;
+                } finally {
+                    writeLock.unlock();
+                }
+                if (written - recordsAtCheckpoint >= checkpointRecords) {
+                    recordsAtCheckpoint = written;
+                    writeCheckpoint();
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Journal maintenance failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Saves every session head together with the position the heads are valid
+     * from. Heads of records appended while the map is being copied may be
+     * newer than that position, which is fine because recovery replays from
+     * it in order. The journal is forced first so no head points past the
+     * durable end.
+     */
+    private void writeCheckpoint() throws IOException {
+        long from;
+        writeLock.lock();
+        try {
+            from = position(segmentNumber, segmentOffset);
+        } finally {
+            writeLock.unlock();
+        }
+        List<Map.Entry<String, Long>> snapshot = new ArrayList<Map.Entry<String, Long>>(heads.size());
+        for (Map.Entry<String, Long> entry : heads.entrySet()) {
+            snapshot.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(), entry.getValue()));
+        }
+        if (!closed) {
+            sync();
+        }
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(from);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Long> entry : snapshot) {
+                byte[] session = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(session.length);
+                out.write(session);
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+            file.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the checkpoint and replays the records after it. Without a usable
+     * checkpoint the whole journal is scanned. Returns the number of records read.
+     */
+    private long recover() throws IOException {
+        List<Integer> segments = listSegments();
+        long from = readCheckpoint();
+        if (from == NO_RECORD) {
+            heads.clear();
+            from = position(segments.isEmpty() ? 1 : segments.get(0), 0);
+        }
+
+        long records = 0;
+        int last = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        int end = 0;
+        for (int number : segments) {
+            if (number < segmentOf(from)) continue;
+            int offset = number == segmentOf(from) ? offsetOf(from) : 0;
+            long[] scanned = scanSegment(number, offset);
+            offset = (int) scanned[0];
+            records += scanned[1];
+            if (number == last) {
+                end = offset;
+            } else if (offset < reader(number).size()) {
+                throw new IOException("Corrupt journal segment " + segmentPath(number) + " at offset " + offset);
+            }
+        }
+
+        segmentNumber = last;
+        segment = FileChannel.open(segmentPath(last), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (segment.size() > end) {
+            // Cut off a torn or corrupt tail so new records follow the last good one
+            segment.truncate(end);
+            segment.force(false);
+        }
+        segmentOffset = end;
+
+        // A checkpoint older than the last deletion can name heads in deleted segments
+        firstSegment = segments.isEmpty() ? last : segments.get(0);
+        heads.values().removeIf(head -> segmentOf(head) < firstSegment);
+        deleteSegmentsBefore(last - maxSegments + 1);
+        return records;
+    }
+
+    /**
+     * Deletes the segments numbered below first and forgets the sessions whose
+     * newest record was in one of them.
+     */
+    private void deleteSegmentsBefore(int first) throws IOException {
+        int oldest = firstSegment;
+        if (first <= oldest) return;
+        firstSegment = first;
+        heads.values().removeIf(head -> segmentOf(head) < first);
+        for (int number = oldest; number < first; number++) {
+            FileChannel channel = readers.remove(number);
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(segmentPath(number));
+        }
+    }
+
+    /**
+     * Reads a segment sequentially from the given offset, updating the session
+     * heads, until the end or the first incomplete or corrupt record.
+     * Returns {end offset, records read}.
+     */
+    private long[] scanSegment(int number, int offset) throws IOException {
+        FileChannel channel = reader(number);
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        buffer.flip();
+        CRC32C crc = new CRC32C();
+        long records = 0;
+
+        while (true) {
+            if (buffer.remaining() < HEADER_BYTES && !fill(channel, buffer, offset)) break;
+            if (buffer.remaining() < HEADER_BYTES) break;
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < 17 || offset + (long) HEADER_BYTES + length > size) break;
+            if (buffer.remaining() < HEADER_BYTES + length) {
+                if (buffer.capacity() < HEADER_BYTES + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(HEADER_BYTES + length);
+                    larger.put(buffer).flip();
+                    buffer = larger;
+                }
+                fill(channel, buffer, offset);
+                if (buffer.remaining() < HEADER_BYTES + length) break;
+                start = buffer.position();
+            }
+
+            crc.reset();
+            crc.update(buffer.array(), start + HEADER_BYTES, length);
+            if ((int) crc.getValue() != buffer.getInt(start + 4)) break;
+            // Payload: previous position (8), role (1), then the session
+            int sessionLength = buffer.getInt(start + HEADER_BYTES + 9);
+            String session = new String(buffer.array(), start + HEADER_BYTES + 13, sessionLength, StandardCharsets.UTF_8);
+            heads.put(session, position(number, offset));
+
+            buffer.position(start + HEADER_BYTES + length);
+            offset += HEADER_BYTES + length;
+            records++;
+        }
+        return new long[] {offset, records};
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more after
+     * them; recordOffset is the file offset of the first unread byte.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, long recordOffset) throws IOException {
+        buffer.compact();
+        long position = recordOffset + buffer.position();
+        boolean added = false;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            position += read;
+            added = true;
+        }
+        buffer.flip();
+        return added;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return NO_RECORD;
+
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 24) return NO_RECORD;
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - 8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getLong(bytes.length - 8) != crc.getValue() || buffer.getInt() != CHECKPOINT_MAGIC) {
+            return NO_RECORD;
+        }
+        long from = buffer.getLong();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String session = readString(buffer);
+            heads.put(session, buffer.getLong());
+        }
+        return from;
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        segmentNumber++;
+        segmentOffset = 0;
+        segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        synchronized (syncMonitor) {
+            // Everything in the rolled segment is on disk now
+            syncedRecords = Math.max(syncedRecords, writtenRecords);
+        }
+        deleteSegmentsBefore(segmentNumber - maxSegments + 1);
+    }
+
+    /**
+     * Reads the payload of the record at the given offset, or returns null if
+     * there is no complete, intact record there.
+     */
+    private static ByteBuffer readRecord(FileChannel channel, int offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (!readFully(channel, header, offset)) return null;
+        int length = header.getInt(0);
+        if (length < 17 || offset + (long) HEADER_BYTES + length > channel.size()) return null;
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (!readFully(channel, payload, offset + HEADER_BYTES)) return null;
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != header.getInt(4)) return null;
+        payload.flip();
+        return payload;
+    }
+
+    private FileChannel reader(int number) throws IOException {
+        FileChannel channel = readers.get(number);
+        if (channel == null) {
+            channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ);
+            FileChannel existing = readers.putIfAbsent(number, channel);
+            if (existing != null) {
+                channel.close();
+                channel = existing;
+            }
+        }
+        return channel;
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> numbers = new ArrayList<Integer>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format(Locale.ROOT, "journal-%08d.log", number));
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) return false;
+            position += read;
+        }
+        return true;
+    }
+}
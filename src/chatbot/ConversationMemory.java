@@ -0,0 +1,126 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent turns of one conversation, kept in fixed-size ring buffers so
+ * appending never shifts the history, and its decaying topic context.
+ */
+class ConversationMemory {
+    private static final int DEFAULT_MAX_MEMORY = 5;
+
+    private TurnRing userMessages;
+    private TurnRing assistantResponses;
+    private final ConversationContext context = new ConversationContext();
+    private final long overheadBytes;
+    private AtomicLong sharedUsage;
+
+    public ConversationMemory() {
+        this(DEFAULT_MAX_MEMORY, null);
+    }
+
+    /**
+     * @param sharedUsage counter that tracks the approximate heap used by all
+     *                    sessions of a store, or null when not tracked
+     */
+    public ConversationMemory(int maxMemory, AtomicLong sharedUsage) {
+        userMessages = new TurnRing(maxMemory);
+        assistantResponses = new TurnRing(maxMemory);
+        this.overheadBytes = overheadBytes(maxMemory);
+        this.sharedUsage = sharedUsage;
+        recordUsage(overheadBytes);
+    }
+
+    /**
+     * Heap of an empty memory with rings of the given capacity: this object,
+     * both rings and their slot arrays, and the topic context with its term
+     * and weight arrays. Estimated for a 64-bit JVM with compressed references.
+     */
+    static long overheadBytes(int maxMemory) {
+        long ring = 32 + 16 + 4L * maxMemory;
+        long context = 24 + (16 + 4L * ConversationContext.CAPACITY) + (16 + 8L * ConversationContext.CAPACITY);
+        return 32 + 2 * ring + context;
+    }
+
+    public synchronized void addUserMessage(String message) {
+        recordUsage(userMessages.add(message));
+    }
+
+    public synchronized void addAssistantResponse(String response) {
+        recordUsage(assistantResponses.add(response));
+    }
+
+    /**
+     * Ages the topic context by one turn and adds the turn's topic terms.
+     */
+    public synchronized void observeTopics(Collection<String> terms) {
+        context.observe(terms);
+    }
+
+    public synchronized List<String> getContextTerms() { return context.topTerms(); }
+
+    public synchronized List<String> getRecentUserMessages() { return userMessages.toList(); }
+    public synchronized List<String> getRecentResponses() { return assistantResponses.toList(); }
+
+    /**
+     * The turns plus the fixed overhead of the memory; the terms held by the
+     * topic context are shared with the knowledge and not counted.
+     */
+    public synchronized long approximateBytes() {
+        return overheadBytes + userMessages.bytes + assistantResponses.bytes;
+    }
+
+    /**
+     * Stops reporting to the shared usage counter and returns the bytes that were
+     * charged to it. Called when the session is evicted from its store.
+     */
+    synchronized long detach() {
+        sharedUsage = null;
+        return approximateBytes();
+    }
+
+    private void recordUsage(long delta) {
+        if (sharedUsage != null && delta != 0) {
+            sharedUsage.addAndGet(delta);
+        }
+    }
+
+    private static class TurnRing {
+        private final String[] slots;
+        private int next;
+        private int size;
+        private long bytes;
+
+        TurnRing(int capacity) {
+            slots = new String[capacity];
+        }
+
+        long add(String turn) {
+            long before = bytes;
+            if (size == slots.length) {
+                bytes -= sizeOf(slots[next]);
+            } else {
+                size++;
+            }
+            slots[next] = turn;
+            bytes += sizeOf(turn);
+            next = (next + 1) % slots.length;
+            return bytes - before;
+        }
+
+        List<String> toList() {
+            List<String> turns = new ArrayList<String>(size);
+            int first = (next - size + slots.length) % slots.length;
+            for (int i = 0; i < size; i++) {
+                turns.add(slots[(first + i) % slots.length]);
+            }
+            return turns;
+        }
+
+        private static long sizeOf(String turn) {
+            // Object header and fields plus two bytes per char as an upper bound
+            return turn == null ? 0 : 40 + 2L * turn.length();
+        }
+    }
+}
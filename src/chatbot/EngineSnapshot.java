@@ -0,0 +1,165 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Everything a request reads besides its session: knowledge entries, the
+ * compiled corpus, NLP tables and response patterns. A snapshot is never
+ * changed after it is published; a reload builds a new one with a higher
+ * version and swaps it in, and a request keeps the snapshot it started with.
+ *
+ * Query terms that occur in neither the entries nor the corpus are replaced by
+ * the closest known term within the distance allowed for their length (see
+ * FuzzyTermIndex.Policy), so "machien lerning" finds "machine learning".
+ * Stop words and synonyms are real words and never corrected, and a
+ * correction only stands when a topic confirms it: one that contains the
+ * corrected term and another term of the corrected query, or the corrected
+ * term alone. So "chance" on its own does not become "change" and match
+ * "climate change"; the corrected query is then ranked like any other, with
+ * the same threshold for partial matches.
+ * Corpus terms are corrected once the corpus has built its typo index in the
+ * background; until then only the in-memory entries correct typos. The index
+ * of the entries is built by the first lookup that needs it, so publishing
+ * one snapshot after another, as addKnowledge does, does not rebuild it each
+ * time.
+ */
+class EngineSnapshot {
+    private final long version;
+    private final long createdAtMillis;
+    private final KnowledgeIndex knowledge;
+    private final MappedKnowledgeBase corpus;
+    private final AdvancedNLPProcessor nlp;
+    private final IntelligentResponseGenerator responses;
+    // Null until the first correction needs it; guarded by this while built
+    private volatile FuzzyTermIndex knowledgeTerms;
+    private final FuzzyTermIndex.Policy fuzzyPolicy;
+
+    public EngineSnapshot(long version, KnowledgeIndex knowledge, MappedKnowledgeBase corpus,
+                          AdvancedNLPProcessor nlp, IntelligentResponseGenerator responses) {
+        this.version = version;
+        this.createdAtMillis = System.currentTimeMillis();
+        this.knowledge = knowledge;
+        this.corpus = corpus;
+        this.nlp = nlp;
+        this.responses = responses;
+        this.fuzzyPolicy = FuzzyTermIndex.Policy.fromSystemProperties();
+        // The corpus index is started here and built in the background
+        if (corpus != null && fuzzyPolicy.isEnabled()) {
+            corpus.fuzzyTerms();
+        }
+    }
+
+    /**
+     * Version 0: no knowledge, default NLP tables and no response patterns.
+     */
+    public static EngineSnapshot initial() {
+        return new EngineSnapshot(0, new KnowledgeIndex(), null, new AdvancedNLPProcessor(),
+                new IntelligentResponseGenerator());
+    }
+
+    /**
+     * A copy with the given entries added to the in-memory knowledge.
+     */
+    public EngineSnapshot withKnowledge(Map<String, String> entries, long version) {
+        KnowledgeIndex copy = knowledge.copy();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return new EngineSnapshot(version, copy, corpus, nlp, responses);
+    }
+
+    public EngineSnapshot withCorpus(MappedKnowledgeBase corpus, long version) {
+        return new EngineSnapshot(version, knowledge, corpus, nlp, responses);
+    }
+
+    /**
+     * Best answer from the in-memory entries, then from the corpus; null if neither matches.
+     */
+    public String findKnowledgeMatch(Collection<String> terms) {
+        terms = correctTerms(terms);
+        String answer = knowledge.findBestAnswer(terms);
+        if (answer == null && corpus != null) {
+            answer = corpus.findBestAnswer(terms);
+        }
+        return answer;
+    }
+
+    /**
+     * The terms with every unknown term replaced by its closest known term,
+     * if one is close enough. The entries win a tie with the corpus.
+     */
+    List<String> correctTerms(Collection<String> terms) {
+        List<String> typed = new ArrayList<String>(terms);
+        List<String> candidates = new ArrayList<String>(typed.size());
+        for (String term : typed) {
+            candidates.add(correctTerm(term));
+        }
+        List<String> corrected = new ArrayList<String>(candidates);
+        for (int i = 0; i < typed.size(); i++) {
+            String candidate = candidates.get(i);
+            if (!candidate.equals(typed.get(i)) && !sharesTopic(candidate, candidates)) {
+                corrected.set(i, typed.get(i));
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * The terms, corrected, that occur in the entries or the corpus.
+     */
+    List<String> knownTerms(Collection<String> terms) {
+        List<String> known = new ArrayList<String>(terms.size());
+        for (String term : correctTerms(terms)) {
+            if (isKnown(term)) {
+                known.add(term);
+            }
+        }
+        return known;
+    }
+
+    private boolean isKnown(String term) {
+        return knowledge.terms().contains(term) || (corpus != null && corpus.containsTerm(term));
+    }
+
+    private boolean sharesTopic(String term, Collection<String> others) {
+        return knowledge.sharesTopic(term, others) || (corpus != null && corpus.sharesTopic(term, others));
+    }
+
+    private String correctTerm(String term) {
+        if (isKnown(term) || nlp.isVocabularyWord(term)) return term;
+        int maxDistance = fuzzyPolicy.maxDistance(term.length());
+        if (maxDistance == 0) return term;
+
+        FuzzyTermIndex.Match best = knowledgeTerms().closest(term, maxDistance);
+        FuzzyTermIndex corpusTerms = corpus == null ? null : corpus.fuzzyTerms();
+        if (corpusTerms != null) {
+            FuzzyTermIndex.Match fromCorpus = corpusTerms.closest(term,
+                    best == null ? maxDistance : best.getDistance() - 1);
+            if (fromCorpus != null) {
+                best = fromCorpus;
+            }
+        }
+        return best == null ? term : best.getTerm();
+    }
+
+    private FuzzyTermIndex knowledgeTerms() {
+        FuzzyTermIndex built = knowledgeTerms;
+        if (built == null) {
+            synchronized (this) {
+                built = knowledgeTerms;
+                if (built == null) {
+                    built = new FuzzyTermIndex(knowledge.terms());
+                    knowledgeTerms = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    public long getVersion() { return version; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+    public KnowledgeIndex getKnowledge() { return knowledge; }
+    public MappedKnowledgeBase getCorpus() { return corpus; }
+    public AdvancedNLPProcessor getNlp() { return nlp; }
+    public IntelligentResponseGenerator getResponses() { return responses; }
+}
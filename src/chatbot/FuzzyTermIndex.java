@@ -0,0 +1,354 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Typo-tolerant lookup over a fixed vocabulary.
+ *
+ * Terms are indexed by their character trigrams (padded with two start and two
+ * end markers), bucketed by trigram position and term length. For a word of
+ * length n and at most k edits, a lookup only reads the buckets of terms of
+ * length n +/- k whose trigram sits within k positions of the word's (fewer
+ * when the lengths differ, since the shift follows from the edits), counts
+ * the matching trigrams per term, and verifies the terms with enough of them
+ * with a bounded edit distance. A term within distance k keeps at least
+ * n + 2 - 4k of the word's n + 2 trigrams, each within k positions, because one
+ * edit, a transposition included, breaks at most four trigrams and shifts the
+ * rest by at most one. The most common of the word's trigrams are not read at
+ * all; the count a term needs is lowered by as many.
+ *
+ * Distance is optimal string alignment: insertions, deletions, substitutions
+ * and transpositions of adjacent characters each cost one, so "pyhton" is one
+ * edit away from "python". Only terms with a letter and at most
+ * MAX_TERM_LENGTH characters are corrected, so numbers are never changed.
+ */
+class FuzzyTermIndex {
+    public static final String MAX_DISTANCE_PROPERTY = "chatbot.fuzzy.maxDistance";
+    static final int MAX_TERM_LENGTH = 64;
+
+    // Trigrams shared with the word per term id, in the match counts; its size
+    // follows the terms a lookup touches rather than the vocabulary
+    private static final ThreadLocal<SparseAccumulator> COUNTERS = ThreadLocal.withInitial(SparseAccumulator::new);
+
+    private final String[] terms;
+    private final Map<String, Integer> ids;
+    // (trigram, position, term length) -> index into postings
+    private final LongIntMap buckets;
+    // Ascending term ids per bucket
+    private final int[][] postings;
+
+    public FuzzyTermIndex(Collection<String> vocabulary) {
+        List<String> indexed = new ArrayList<String>(vocabulary.size());
+        for (String term : vocabulary) {
+            if (correctable(term)) {
+                indexed.add(term);
+            }
+        }
+        terms = indexed.toArray(new String[0]);
+        ids = new HashMap<String, Integer>(terms.length * 2);
+        buckets = new LongIntMap();
+        List<IntList> lists = new ArrayList<IntList>();
+        for (int id = 0; id < terms.length; id++) {
+            String term = terms[id];
+            ids.put(term, id);
+            for (int position = 0; position < term.length() + 2; position++) {
+                long key = key(term, position, position, term.length());
+                int bucket = buckets.get(key);
+                if (bucket < 0) {
+                    bucket = lists.size();
+                    buckets.put(key, bucket);
+                    lists.add(new IntList());
+                }
+                lists.get(bucket).add(id);
+            }
+        }
+        postings = new int[lists.size()][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = Arrays.copyOf(lists.get(i).values, lists.get(i).size);
+        }
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public boolean contains(String term) {
+        return ids.containsKey(term);
+    }
+
+    static boolean correctable(String term) {
+        if (term.length() > MAX_TERM_LENGTH) return false;
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isLetter(term.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The vocabulary term closest to the word within maxDistance edits, or null.
+     * Ties go to the term sharing more trigrams, then to the earlier term.
+     */
+    public Match closest(String word, int maxDistance) {
+        if (ids.containsKey(word)) return new Match(word, 0);
+        if (maxDistance <= 0 || terms.length == 0 || !correctable(word)) return null;
+
+        // Buckets to read for each trigram of the word, and how many ids they hold
+        int positions = word.length() + 2;
+        List<IntList> positionBuckets = new ArrayList<IntList>(positions);
+        long[] sizes = new long[positions];
+        for (int position = 0; position < positions; position++) {
+            positionBuckets.add(new IntList());
+        }
+        int minLength = Math.max(1, word.length() - maxDistance);
+        int maxLength = Math.min(MAX_TERM_LENGTH, word.length() + maxDistance);
+        for (int length = minLength; length <= maxLength; length++) {
+            // With i insertions and d deletions, i - d = length difference and
+            // i + d <= maxDistance, a trigram moves by -d to +i positions
+            int difference = length - word.length();
+            int maxInserted = (maxDistance + difference) / 2;
+            int maxDeleted = (maxDistance - difference) / 2;
+            for (int position = 0; position < positions; position++) {
+                int lastShifted = Math.min(position + maxInserted, length + 1);
+                for (int shifted = Math.max(0, position - maxDeleted); shifted <= lastShifted; shifted++) {
+                    int bucket = buckets.get(key(word, position, shifted, length));
+                    if (bucket >= 0) {
+                        positionBuckets.get(position).add(bucket);
+                        sizes[position] += postings[bucket].length;
+                    }
+                }
+            }
+        }
+
+        // A match shares at least `required` trigrams with the word. Skipping
+        // the s most common trigrams still leaves it required - s of the rest,
+        // so half the slack is spent on not reading the longest posting lists.
+        int required = Math.max(1, positions - 4 * maxDistance);
+        int skipped = (required - 1) / 2;
+        long[] order = new long[positions];
+        for (int position = 0; position < positions; position++) {
+            order[position] = sizes[position] << 8 | position;
+        }
+        Arrays.sort(order);
+
+        SparseAccumulator counter = COUNTERS.get();
+        for (int i = 0; i < positions - skipped; i++) {
+            IntList read = positionBuckets.get((int) (order[i] & 0xFF));
+            for (int j = 0; j < read.size; j++) {
+                for (int id : postings[read.values[j]]) {
+                    counter.add(id, 1);
+                }
+            }
+        }
+
+        int threshold = required - skipped;
+        int best = -1;
+        int bestDistance = maxDistance + 1;
+        int bestShared = 0;
+        for (int i = 0; i < counter.touchedCount; i++) {
+            int slot = counter.touched[i];
+            int id = counter.keys[slot];
+            int shared = counter.matched[slot];
+            if (shared < threshold) continue;
+            int distance = distance(word, terms[id], Math.min(maxDistance, bestDistance));
+            if (distance > maxDistance) continue;
+            boolean better = distance != bestDistance ? distance < bestDistance
+                    : (shared != bestShared ? shared > bestShared : id < best);
+            if (best < 0 || better) {
+                best = id;
+                bestDistance = distance;
+                bestShared = shared;
+            }
+        }
+        counter.reset();
+        return best < 0 ? null : new Match(terms[best], bestDistance);
+    }
+
+    /**
+     * Optimal string alignment distance, or max + 1 as soon as it is known to
+     * exceed max. Only a band of width 2 * max + 1 around the diagonal is filled.
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        int inf = max + 1;
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= max ? j : inf;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            Arrays.fill(current, inf);
+            current[0] = i <= max ? i : inf;
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = Math.min(value, inf);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return inf;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+
+    /**
+     * Bucket key of the trigram starting at the given position of the padded
+     * term, filed under another position and a term length (both at most 255).
+     */
+    private static long key(String term, int position, int filedPosition, int length) {
+        long trigram = 0;
+        for (int i = position - 2; i <= position; i++) {
+            char c = i < 0 ? '\u0002' : (i >= term.length() ? '\u0003' : term.charAt(i));
+            trigram = trigram << 16 | c;
+        }
+        return trigram << 16 | filedPosition << 8 | length;
+    }
+
+    public static class Match {
+        private final String term;
+        private final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        public String getTerm() { return term; }
+        public int getDistance() { return distance; }
+    }
+
+    /**
+     * Maximum edit distance by word length, written as "minLength:distance"
+     * pairs, e.g. "5:1,9:2": no edits below five letters, one from five, two
+     * from nine. "off" disables correction.
+     */
+    public static class Policy {
+        public static final String DEFAULT = "5:1,9:2";
+
+        private final int[] minLengths;
+        private final int[] distances;
+
+        private Policy(int[] minLengths, int[] distances) {
+            this.minLengths = minLengths;
+            this.distances = distances;
+        }
+
+        public static Policy fromSystemProperties() {
+            return parse(System.getProperty(MAX_DISTANCE_PROPERTY, DEFAULT));
+        }
+
+        public static Policy parse(String spec) {
+            String trimmed = spec.trim();
+            if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("off")) {
+                return new Policy(new int[0], new int[0]);
+            }
+            String[] pairs = trimmed.split(",");
+            int[] minLengths = new int[pairs.length];
+            int[] distances = new int[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                String[] parts = pairs[i].split(":");
+                try {
+                    if (parts.length != 2) throw new NumberFormatException();
+                    minLengths[i] = Integer.parseInt(parts[0].trim());
+                    distances[i] = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Expected minLength:distance pairs, got " + spec);
+                }
+                if (i > 0 && minLengths[i] <= minLengths[i - 1]) {
+                    throw new IllegalArgumentException("Word lengths must increase: " + spec);
+                }
+            }
+            return new Policy(minLengths, distances);
+        }
+
+        /**
+         * Whether any word length is allowed an edit; with "off" it is not.
+         */
+        public boolean isEnabled() {
+            for (int distance : distances) {
+                if (distance > 0) return true;
+            }
+            return false;
+        }
+
+        public int maxDistance(int wordLength) {
+            int distance = 0;
+            for (int i = 0; i < minLengths.length && wordLength >= minLengths[i]; i++) {
+                distance = distances[i];
+            }
+            return distance;
+        }
+    }
+
+    /**
+     * Open-addressing map from nonzero long keys to non-negative ints.
+     */
+    private static class LongIntMap {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return values[slot];
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) size++;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ h >>> 32);
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Intelligent Response Generator
+ */
+class IntelligentResponseGenerator {
+    private final Map<String, List<String>> professionalResponses;
+
+    public IntelligentResponseGenerator() {
+        this(Collections.<String, List<String>>emptyMap());
+    }
+
+    /**
+     * Intros and canned replies by intent; the map is copied.
+     */
+    public IntelligentResponseGenerator(Map<String, List<String>> responses) {
+        Map<String, List<String>> copy = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : responses.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<String>(entry.getValue())));
+        }
+        professionalResponses = Collections.unmodifiableMap(copy);
+    }
+
+    static Map<String, List<String>> defaultPatterns() {
+        Map<String, List<String>> professionalResponses = new HashMap<String, List<String>>();
+        professionalResponses.put("GREETING", Arrays.asList(
+                "Hello! I'm here to provide professional assistance. How may I help you today?",
+                "Good day! I'm ready to assist you with any questions or tasks you have.",
+                "Welcome! I'm your AI assistant, equipped to help with various professional and technical topics."
+        ));
+
+        professionalResponses.put("TECHNICAL", Arrays.asList(
+                "That's an excellent technical question. Based on current best practices and industry standards,",
+                "From a technical perspective, let me provide you with a comprehensive explanation:",
+                "This is a relevant technical topic. Here's what you should know:"
+        ));
+
+        professionalResponses.put("BUSINESS", Arrays.asList(
+                "From a business strategy standpoint,",
+                "In professional business contexts,",
+                "This is an important business consideration:"
+        ));
+
+        professionalResponses.put("EXPLANATION", Arrays.asList(
+                "I'd be happy to explain this concept in detail:",
+                "Let me break this down for you systematically:",
+                "Here's a comprehensive explanation of this topic:"
+        ));
+        return professionalResponses;
+    }
+
+    public String enhanceResponse(String baseResponse, ProcessedQuery query) {
+        String intent = query.getIntent();
+        List<String> intros = professionalResponses.get(intent);
+
+        if (intros != null && !intros.isEmpty()) {
+            String intro = intros.get(ThreadLocalRandom.current().nextInt(intros.size()));
+            return intro + " " + baseResponse;
+        }
+
+        return baseResponse;
+    }
+
+    public String formatSearchResponse(String searchResult, ProcessedQuery query) {
+        return "Based on current information: " + searchResult + "\n\nPlease note that online information should be verified from official sources for critical decisions.";
+    }
+
+    /**
+     * A response for a query no knowledge answered. The context of earlier
+     * turns comes with the query, as the topic terms of a follow-up.
+     */
+    public String generateContextualResponse(ProcessedQuery query) {
+        String intent = query.getIntent();
+        QueryType type = query.getQueryType();
+
+        switch (type) {
+            case GREETING:
+                return getRandomResponse("GREETING");
+            case QUESTION:
+            case EXPLANATION:
+                return generateExplanationResponse(query);
+            case HELP_REQUEST:
+                return "I'm here to help! Could you please provide more specific details about what you need assistance with? I can help with technical topics, business questions, general information, and much more.";
+            case FAREWELL:
+                return "Thank you for using my services! I hope I was able to help. Feel free to return anytime you need assistance. Have a great day!";
+            case GRATITUDE:
+                return "You're very welcome! I'm glad I could assist you. If you have any other questions or need further help, please don't hesitate to ask.";
+            default:
+                return generateIntelligentResponse(query, intent);
+        }
+    }
+
+    private String generateExplanationResponse(ProcessedQuery query) {
+        List<String> keywords = query.getTopicTerms();
+        if (keywords.isEmpty()) {
+            return "I'd be happy to explain that topic. Could you please provide more specific details about what you'd like to know?";
+        }
+
+        String topic = String.join(" ", keywords);
+        return "I understand you're asking about " + topic + ". While I don't have specific information readily available on this exact topic, I recommend consulting authoritative sources or academic resources for detailed information. Is there a particular aspect you'd like me to help you explore further?";
+    }
+
+    private String generateIntelligentResponse(ProcessedQuery query, String intent) {
+        switch (intent) {
+            case "TECHNICAL":
+                return "This appears to be a technical question. For accurate and up-to-date technical information, I recommend consulting official documentation, technical forums, or industry-standard resources. Could you provide more context so I can offer more targeted guidance?";
+            case "BUSINESS":
+                return "Business decisions often require current market data and specific context. While I can provide general guidance, I recommend consulting with professionals or current business resources for strategic decisions. What specific aspect can I help clarify?";
+            case "CURRENT_EVENTS":
+                return "For current events and latest news, I recommend checking reputable news sources for the most accurate and timely information. Is there a particular topic or area you're interested in learning about?";
+            default:
+                return "That's an interesting topic. While I may not have comprehensive information on this specific subject, I'm here to help in any way I can. Could you provide more details or ask a more specific question so I can better assist you?";
+        }
+    }
+
+    private String getRandomResponse(String category) {
+        List<String> responses = professionalResponses.get(category);
+        if (responses != null && !responses.isEmpty()) {
+            return responses.get(ThreadLocalRandom.current().nextInt(responses.size()));
+        }
+        return "I'm here to help you with any questions or tasks you have.";
+    }
+}
@@ -0,0 +1,349 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Offline compiler from a text corpus to the MappedKnowledgeBase file format.
+ *
+ * Input is either CSV (topic,answer with RFC 4180 quoting; a "topic,answer"
+ * header row is skipped) or, for any other extension, one "topic&lt;TAB&gt;answer"
+ * entry per line. Blank lines and lines starting with # are ignored. A topic
+ * that occurs twice keeps its first position and its last answer, like
+ * KnowledgeIndex.put.
+ *
+ * Usage: KnowledgeBaseBuilder input.(csv|tsv|txt) output.kb
+ */
+public class KnowledgeBaseBuilder {
+    private final Map<String, Integer> topicIds = new HashMap<String, Integer>();
+    private final List<String> topics = new ArrayList<String>();
+    private final Map<String, Ints> postings = new HashMap<String, Ints>();
+    private final Ints topicLengths = new Ints();
+    private long totalTerms;
+
+    // Answers are spilled to a scratch file as they arrive; [start, length] per entry
+    private final Path answerSpill;
+    private final DataOutputStream spill;
+    private long spillSize;
+    private long[] answerStarts = new long[1024];
+    private int[] answerLengths = new int[1024];
+
+    public KnowledgeBaseBuilder() throws IOException {
+        answerSpill = Files.createTempFile("chatbot-kb-answers", ".tmp");
+        answerSpill.toFile().deleteOnExit();
+        spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(answerSpill), 1 << 16));
+    }
+
+    public void add(String topic, String answer) throws IOException {
+        byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+        Integer existing = topicIds.get(topic);
+        int id;
+        if (existing != null) {
+            id = existing;
+        } else {
+            id = topics.size();
+            topicIds.put(topic, id);
+            topics.add(topic);
+
+            Set<String> terms = new LinkedHashSet<String>(KnowledgeIndex.tokenize(topic));
+            topicLengths.add(terms.size());
+            totalTerms += terms.size();
+            for (String term : terms) {
+                Ints list = postings.get(term);
+                if (list == null) {
+                    list = new Ints();
+                    postings.put(term, list);
+                }
+                list.add(id);
+            }
+            if (id == answerStarts.length) {
+                answerStarts = Arrays.copyOf(answerStarts, id * 2);
+                answerLengths = Arrays.copyOf(answerLengths, id * 2);
+            }
+        }
+        spill.write(bytes);
+        answerStarts[id] = spillSize;
+        answerLengths[id] = bytes.length;
+        spillSize += bytes.length;
+    }
+
+    public int size() {
+        return topics.size();
+    }
+
+    /**
+     * Writes the compiled knowledge base and removes the scratch file.
+     */
+    public void write(Path output) throws IOException {
+        spill.close();
+        try {
+            writeSections(output);
+        } finally {
+            Files.deleteIfExists(answerSpill);
+        }
+    }
+
+    private void writeSections(Path output) throws IOException {
+        int entryCount = topics.size();
+        byte[][] terms = new byte[postings.size()][];
+        int t = 0;
+        for (String term : postings.keySet()) {
+            terms[t++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(terms, Arrays::compareUnsigned);
+        Ints[] termPostings = new Ints[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            termPostings[i] = postings.get(new String(terms[i], StandardCharsets.UTF_8));
+        }
+
+        byte[][] topicBytes = new byte[entryCount][];
+        long topicBytesLength = 0;
+        for (int i = 0; i < entryCount; i++) {
+            topicBytes[i] = topics.get(i).getBytes(StandardCharsets.UTF_8);
+            topicBytesLength += topicBytes[i].length;
+        }
+        long termBytesLength = 0;
+        long postingCount = 0;
+        for (int i = 0; i < terms.length; i++) {
+            termBytesLength += terms[i].length;
+            postingCount += termPostings[i].size;
+        }
+
+        long[] positions = new long[9];
+        positions[0] = MappedKnowledgeBase.HEADER_BYTES;
+        positions[1] = positions[0] + 4L * (terms.length + 1);
+        positions[2] = positions[1] + termBytesLength;
+        positions[3] = positions[2] + 4L * (terms.length + 1);
+        positions[4] = positions[3] + 4L * postingCount;
+        positions[5] = positions[4] + 4L * entryCount;
+        positions[6] = positions[5] + 4L * (entryCount + 1);
+        positions[7] = positions[6] + topicBytesLength;
+        positions[8] = positions[7] + 8L * (entryCount + 1);
+        if (positions[8] > Integer.MAX_VALUE) {
+            throw new IOException("Knowledge base index larger than 2 GB is not supported");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16));
+             FileChannel answers = FileChannel.open(answerSpill, StandardOpenOption.READ)) {
+            out.writeInt(MappedKnowledgeBase.MAGIC);
+            out.writeInt(MappedKnowledgeBase.VERSION);
+            out.writeInt(entryCount);
+            out.writeInt(terms.length);
+            out.writeLong(totalTerms);
+            for (long position : positions) {
+                out.writeLong(position);
+            }
+
+            int offset = 0;
+            for (byte[] term : terms) {
+                out.writeInt(offset);
+                offset += term.length;
+            }
+            out.writeInt(offset);
+            for (byte[] term : terms) {
+                out.write(term);
+            }
+
+            int start = 0;
+            for (Ints list : termPostings) {
+                out.writeInt(start);
+                start += list.size;
+            }
+            out.writeInt(start);
+            for (Ints list : termPostings) {
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(list.values[i]);
+                }
+            }
+
+            for (int i = 0; i < entryCount; i++) {
+                out.writeInt(topicLengths.values[i]);
+            }
+            offset = 0;
+            for (byte[] topic : topicBytes) {
+                out.writeInt(offset);
+                offset += topic.length;
+            }
+            out.writeInt(offset);
+            for (byte[] topic : topicBytes) {
+                out.write(topic);
+            }
+
+            long answerOffset = 0;
+            for (int i = 0; i < entryCount; i++) {
+                out.writeLong(answerOffset);
+                answerOffset += answerLengths[i];
+            }
+            out.writeLong(answerOffset);
+
+            // Copy the live answers in entry order; overwritten ones are left behind
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            for (int i = 0; i < entryCount; i++) {
+                if (buffer.capacity() < answerLengths[i]) {
+                    buffer = ByteBuffer.allocate(answerLengths[i]);
+                }
+                buffer.clear().limit(answerLengths[i]);
+                long position = answerStarts[i];
+                while (buffer.hasRemaining()) {
+                    int read = answers.read(buffer, position);
+                    if (read < 0) throw new EOFException("Answer scratch file truncated");
+                    position += read;
+                }
+                out.write(buffer.array(), 0, answerLengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Receives the rows of a corpus file in file order.
+     */
+    interface RowHandler {
+        void row(String topic, String answer) throws IOException;
+    }
+
+    /**
+     * Reads a corpus file into the builder; returns the number of rows read.
+     */
+    public long load(Path input) throws IOException {
+        return readCorpus(input, this::add);
+    }
+
+    /**
+     * Parses a corpus file in either input format and hands every row, trimmed,
+     * to the handler. Returns the number of rows read.
+     */
+    static long readCorpus(Path input, RowHandler handler) throws IOException {
+        boolean csv = input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            return csv ? loadCsv(in, handler) : loadTabSeparated(in, handler);
+        }
+    }
+
+    private static long loadTabSeparated(BufferedReader in, RowHandler handler) throws IOException {
+        long rows = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("Line " + lineNumber + ": expected topic<TAB>answer");
+            }
+            addRow(handler, line.substring(0, tab), line.substring(tab + 1), lineNumber);
+            rows++;
+        }
+        return rows;
+    }
+
+    private static long loadCsv(BufferedReader in, RowHandler handler) throws IOException {
+        long rows = 0;
+        long record = 0;
+        List<String> fields;
+        while ((fields = readCsvRecord(in)) != null) {
+            record++;
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) continue;
+            if (fields.get(0).startsWith("#")) continue;
+            if (record == 1 && fields.size() >= 2 && "topic".equalsIgnoreCase(fields.get(0).trim())
+                    && "answer".equalsIgnoreCase(fields.get(1).trim())) {
+                continue;
+            }
+            if (fields.size() < 2) {
+                throw new IOException("Record " + record + ": expected topic,answer");
+            }
+            addRow(handler, fields.get(0), fields.get(1), record);
+            rows++;
+        }
+        return rows;
+    }
+
+    private static void addRow(RowHandler handler, String topic, String answer, long row) throws IOException {
+        topic = topic.trim();
+        answer = answer.trim();
+        if (topic.isEmpty() || answer.isEmpty()) {
+            throw new IOException("Row " + row + ": topic and answer must not be empty");
+        }
+        handler.row(topic, answer);
+    }
+
+    /**
+     * One RFC 4180 record; quoted fields may contain commas, doubled quotes and
+     * line breaks. Returns null at end of input.
+     */
+    private static List<String> readCsvRecord(BufferedReader in) throws IOException {
+        int c = in.read();
+        if (c < 0) return null;
+
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) throw new EOFException("Unterminated quoted CSV field");
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        in.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c < 0) {
+                break;
+            } else if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') in.reset();
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static class Ints {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: KnowledgeBaseBuilder input.(csv|tsv|txt) output.kb");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        KnowledgeBaseBuilder builder = new KnowledgeBaseBuilder();
+        long rows = builder.load(Paths.get(args[0]));
+        Path output = Paths.get(args[1]);
+        builder.write(output);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Compiled %d rows into %d entries (%d terms, %d bytes) in %.2f s%n",
+                rows, builder.size(), builder.postings.size(), Files.size(output), seconds);
+    }
+}
@@ -0,0 +1,178 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Inverted index over knowledge base topics with BM25 ranking.
+ * Lookup only touches the posting lists of the query terms, so its cost
+ * follows the query length rather than the number of entries.
+ * An index is filled by one thread and then only read: it is published
+ * inside an EngineSnapshot and never changed afterwards, so lookups need no
+ * lock. Changes are made on a copy.
+ */
+class KnowledgeIndex {
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    // A topic that only shares terms found in most other topics is no answer
+    static final double MIN_PARTIAL_SCORE = 1.0;
+    private static final ThreadLocal<SparseAccumulator> ACCUMULATORS = ThreadLocal.withInitial(SparseAccumulator::new);
+
+    private final Map<String, Integer> topicIds;
+    private final List<String> topics;
+    private final List<String> answers;
+    private final IntList topicLengths;
+    private final Map<String, IntList> postings;
+    private long totalTerms;
+
+    public KnowledgeIndex() {
+        topicIds = new HashMap<String, Integer>();
+        topics = new ArrayList<String>();
+        answers = new ArrayList<String>();
+        topicLengths = new IntList();
+        postings = new HashMap<String, IntList>();
+    }
+
+    public void put(String topic, String answer) {
+        Integer existing = topicIds.get(topic);
+        if (existing != null) {
+            answers.set(existing, answer);
+            return;
+        }
+
+        int id = answers.size();
+        Set<String> terms = new LinkedHashSet<String>(tokenize(topic));
+        topicIds.put(topic, id);
+        topics.add(topic);
+        answers.add(answer);
+        topicLengths.add(terms.size());
+        totalTerms += terms.size();
+
+        for (String term : terms) {
+            IntList list = postings.get(term);
+            if (list == null) {
+                list = new IntList();
+                postings.put(term, list);
+            }
+            list.add(id);
+        }
+    }
+
+    public int size() {
+        return answers.size();
+    }
+
+    /**
+     * Distinct terms of all topics.
+     */
+    public Set<String> terms() {
+        return Collections.unmodifiableSet(postings.keySet());
+    }
+
+    /**
+     * A new index with the same entries in the same order.
+     */
+    public KnowledgeIndex copy() {
+        KnowledgeIndex copy = new KnowledgeIndex();
+        for (int i = 0; i < topics.size(); i++) {
+            copy.put(topics.get(i), answers.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the answer of the best ranked topic for the given query terms, or null.
+     * Topics whose terms all occur in the query rank ahead of partial matches;
+     * ties are broken by BM25 score and then by insertion order. A partial
+     * match must score at least MIN_PARTIAL_SCORE, which a single term only
+     * reaches when fewer than about a third of the topics contain it.
+     */
+    public String findBestAnswer(Collection<String> queryTerms) {
+        if (answers.isEmpty()) return null;
+
+        double avgLength = (double) totalTerms / answers.size();
+        SparseAccumulator acc = ACCUMULATORS.get();
+
+        for (String term : new LinkedHashSet<String>(queryTerms)) {
+            IntList list = postings.get(term);
+            if (list == null) continue;
+
+            double idf = Math.log(1 + (answers.size() - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int id = list.values[i];
+                // Topic terms are unique, so the term frequency is always 1
+                double weight = idf * (K1 + 1) / (1 + K1 * (1 - B + B * topicLengths.get(id) / avgLength));
+                acc.add(id, weight);
+            }
+        }
+
+        int best = acc.best(topicLengths::get, MIN_PARTIAL_SCORE);
+        acc.reset();
+        return best < 0 ? null : answers.get(best);
+    }
+
+    /**
+     * Whether some topic contains the term together with one of the other
+     * terms, or consists of the term alone.
+     */
+    public boolean sharesTopic(String term, Collection<String> others) {
+        IntList list = postings.get(term);
+        if (list == null) return false;
+        for (int i = 0; i < list.size; i++) {
+            if (topicLengths.get(list.values[i]) == 1) return true;
+        }
+        for (String other : others) {
+            IntList otherList = other.equals(term) ? null : postings.get(other);
+            if (otherList != null && intersects(list, otherList)) return true;
+        }
+        return false;
+    }
+
+    private static boolean intersects(IntList a, IntList b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            int cmp = Integer.compare(a.values[i], b.values[j]);
+            if (cmp == 0) return true;
+            if (cmp < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+    }
+}
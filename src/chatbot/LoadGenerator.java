@@ -0,0 +1,382 @@
+package chatbot;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop load generator: simulated users hold multi-turn conversations
+ * (greetings, knowledge questions, current-events questions, follow-ups) with
+ * an in-process engine or a ChatbotServer, then throughput, latency
+ * percentiles and GC totals are reported.
+ *
+ * Each user keeps a schedule: a turn is due one think time (exponentially
+ * distributed around the mean) after the previous turn was due. A user whose
+ * answer came back late sends the next turn at once, and its response time
+ * counts from when the turn was due. Timing from the send instead would leave
+ * out the waiting a stalled server causes (coordinated omission); that time
+ * is reported separately as service time. With a think time of 0 users send
+ * back to back and both times are the same.
+ *
+ * Over HTTP the GC totals are read from the server's /metrics.
+ *
+ * Usage: LoadGenerator [--users N] [--duration S] [--warmup S] [--think MS]
+ *                      [--url http://host:port] [--internet] [--seed N]
+ */
+public class LoadGenerator {
+    private static final List<List<Turn>> CONVERSATIONS = Arrays.asList(
+            Arrays.asList(new Turn("Hello!", false),
+                    new Turn("What is machine learning?", false),
+                    new Turn("How does it relate to artificial intelligence?", false),
+                    new Turn("What is the latest news about AI?", true),
+                    new Turn("Thanks, bye", false)),
+            Arrays.asList(new Turn("Hi there", false),
+                    new Turn("Tell me about python programming", false),
+                    new Turn("What about its frameworks?", false),
+                    new Turn("Explain data analysis", false),
+                    new Turn("Thank you", false)),
+            Arrays.asList(new Turn("Good morning", false),
+                    new Turn("What is climate change?", false),
+                    new Turn("What are the current trends in renewable energy?", true),
+                    new Turn("Can you tell me more?", false),
+                    new Turn("Goodbye", false)),
+            Arrays.asList(new Turn("Hey", false),
+                    new Turn("How should I approach project management?", false),
+                    new Turn("Is java programming still worth learning?", false),
+                    new Turn("Any recent news about Java releases today?", true),
+                    new Turn("Great, thanks", false)));
+
+    private final int users;
+    private final long thinkNanos;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final boolean useInternet;
+    private final long seed;
+
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LatencyHistogram serviceTimes = new LatencyHistogram();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public LoadGenerator(int users, Duration think, Duration warmup, Duration duration, boolean useInternet, long seed) {
+        this.users = users;
+        this.thinkNanos = think.toNanos();
+        this.warmupNanos = warmup.toNanos();
+        this.durationNanos = duration.toNanos();
+        this.useInternet = useInternet;
+        this.seed = seed;
+    }
+
+    /**
+     * Where the turns go.
+     */
+    interface Target {
+        void send(String session, String message, boolean useInternet) throws IOException;
+
+        /** Collections and collection time so far, summed over all collectors. */
+        GcTotals gcTotals() throws IOException;
+    }
+
+    /**
+     * Runs the users through the warmup and the measured period and returns
+     * once all of them have finished their last turn.
+     */
+    public Report run(Target target) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+
+        User[] threads = new User[users];
+        for (int i = 0; i < users; i++) {
+            threads[i] = new User(i, target, start, measureStart, end);
+            threads[i].start();
+        }
+
+        sleepUntil(measureStart);
+        GcTotals gcBefore = target.gcTotals();
+        sleepUntil(end);
+        GcTotals gcAfter = target.gcTotals();
+        for (User thread : threads) {
+            thread.join();
+        }
+        return new Report(answered.sum(), failed.sum(), durationNanos, responseTimes, serviceTimes,
+                gcAfter.collections - gcBefore.collections, gcAfter.millis - gcBefore.millis);
+    }
+
+    private class User extends Thread {
+        private final int id;
+        private final Target target;
+        private final long start;
+        private final long measureStart;
+        private final long end;
+        private final Random random;
+
+        User(int id, Target target, long start, long measureStart, long end) {
+            super("load-user-" + id);
+            setDaemon(true);
+            this.id = id;
+            this.target = target;
+            this.start = start;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.random = new Random(seed + id);
+        }
+
+        public void run() {
+            // Spread the first turns over one think time so users do not start in lockstep
+            long due = start + (long) (random.nextDouble() * thinkNanos);
+            for (int conversation = id; ; conversation += users) {
+                String session = "load-" + id + "-" + conversation;
+                for (Turn turn : CONVERSATIONS.get(conversation % CONVERSATIONS.size())) {
+                    if (due >= end) return;
+                    sleepUntil(due);
+
+                    long sent = System.nanoTime();
+                    boolean ok;
+                    try {
+                        target.send(session, turn.message, useInternet && turn.currentEvents);
+                        ok = true;
+                    } catch (IOException | RuntimeException e) {
+                        ok = false;
+                    }
+                    long done = System.nanoTime();
+
+                    if (due >= measureStart) {
+                        if (ok) {
+                            responseTimes.record(done - due);
+                            serviceTimes.record(done - sent);
+                            answered.increment();
+                        } else {
+                            failed.increment();
+                        }
+                    }
+                    due = thinkNanos == 0 ? done : due + nextThinkTime();
+                }
+            }
+        }
+
+        private long nextThinkTime() {
+            return (long) (-thinkNanos * Math.log(1 - random.nextDouble()));
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    static class Turn {
+        final String message;
+        final boolean currentEvents;
+
+        Turn(String message, boolean currentEvents) {
+            this.message = message;
+            this.currentEvents = currentEvents;
+        }
+    }
+
+    static class GcTotals {
+        final long collections;
+        final long millis;
+
+        GcTotals(long collections, long millis) {
+            this.collections = collections;
+            this.millis = millis;
+        }
+
+        static GcTotals ofThisProcess() {
+            long collections = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, collector.getCollectionCount());
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            return new GcTotals(collections, millis);
+        }
+    }
+
+    static class Report {
+        private final long answered;
+        private final long failed;
+        private final long durationNanos;
+        private final LatencyHistogram responseTimes;
+        private final LatencyHistogram serviceTimes;
+        private final long gcCollections;
+        private final long gcMillis;
+
+        Report(long answered, long failed, long durationNanos, LatencyHistogram responseTimes,
+               LatencyHistogram serviceTimes, long gcCollections, long gcMillis) {
+            this.answered = answered;
+            this.failed = failed;
+            this.durationNanos = durationNanos;
+            this.responseTimes = responseTimes;
+            this.serviceTimes = serviceTimes;
+            this.gcCollections = gcCollections;
+            this.gcMillis = gcMillis;
+        }
+
+        public long getAnswered() { return answered; }
+        public long getFailed() { return failed; }
+        public double getThroughput() { return answered / (durationNanos / 1e9); }
+        public LatencyHistogram getResponseTimes() { return responseTimes; }
+        public LatencyHistogram getServiceTimes() { return serviceTimes; }
+        public long getGcCollections() { return gcCollections; }
+        public long getGcMillis() { return gcMillis; }
+
+        public String toString() {
+            return String.format(Locale.ROOT, "Turns: %d answered, %d failed, %.1f/s%n", answered, failed, getThroughput())
+                    + line("Response time (from due)", responseTimes)
+                    + line("Service time (from send)", serviceTimes)
+                    + String.format(Locale.ROOT, "GC: %d collections, %d ms total%n", gcCollections, gcMillis);
+        }
+
+        private static String line(String label, LatencyHistogram histogram) {
+            return String.format(Locale.ROOT, "%-25s p50 %.2f ms  p99 %.2f ms  p999 %.2f ms  max %.2f ms%n", label,
+                    histogram.getPercentile(50, TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(99, TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(99.9, TimeUnit.MILLISECONDS),
+                    histogram.getMax(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    static class InProcessTarget implements Target {
+        private final ProfessionalChatbotEngine engine;
+
+        InProcessTarget(ProfessionalChatbotEngine engine) {
+            this.engine = engine;
+        }
+
+        public void send(String session, String message, boolean useInternet) {
+            // Through the session executor like the server, so turns refused as busy count as failed
+            engine.submitMessage(session, message, useInternet).join();
+        }
+
+        public GcTotals gcTotals() {
+            return GcTotals.ofThisProcess();
+        }
+    }
+
+    /**
+     * Talks to a ChatbotServer through POST /chat.
+     */
+    static class HttpTarget implements Target {
+        private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+        private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+        private final URI chat;
+        private final URI metrics;
+
+        HttpTarget(String baseUrl) {
+            String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            this.chat = URI.create(base + "/chat");
+            this.metrics = URI.create(base + "/metrics");
+        }
+
+        public void send(String session, String message, boolean useInternet) throws IOException {
+            String body = "{\"session\":" + Json.quote(session) + ",\"message\":" + Json.quote(message)
+                    + ",\"internet\":" + useInternet + "}";
+            HttpRequest request = HttpRequest.newBuilder(chat)
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<Void> response = exchange(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+        }
+
+        public GcTotals gcTotals() throws IOException {
+            HttpResponse<String> response = exchange(HttpRequest.newBuilder(metrics).timeout(TIMEOUT).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long collections = 0;
+            long millis = 0;
+            for (String line : response.body().split("\n")) {
+                if (line.startsWith("chatbot_gc_collections_total")) {
+                    collections += Math.max(0, lastValue(line));
+                } else if (line.startsWith("chatbot_gc_time_ms_total")) {
+                    millis += Math.max(0, lastValue(line));
+                }
+            }
+            return new GcTotals(collections, millis);
+        }
+
+        private <T> HttpResponse<T> exchange(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+            try {
+                return client.send(request, handler);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+
+        private static long lastValue(String line) {
+            return Long.parseLong(line.substring(line.lastIndexOf(' ') + 1).trim());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = 50;
+        long durationSeconds = 60;
+        long warmupSeconds = 10;
+        long thinkMillis = 1000;
+        String url = null;
+        boolean useInternet = false;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--internet".equals(option)) {
+                useInternet = true;
+            } else if (i + 1 < args.length && "--users".equals(option)) {
+                users = Integer.parseInt(args[++i]);
+            } else if (i + 1 < args.length && "--duration".equals(option)) {
+                durationSeconds = Long.parseLong(args[++i]);
+            } else if (i + 1 < args.length && "--warmup".equals(option)) {
+                warmupSeconds = Long.parseLong(args[++i]);
+            } else if (i + 1 < args.length && "--think".equals(option)) {
+                thinkMillis = Long.parseLong(args[++i]);
+            } else if (i + 1 < args.length && "--url".equals(option)) {
+                url = args[++i];
+            } else if (i + 1 < args.length && "--seed".equals(option)) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Usage: LoadGenerator [--users N] [--duration S] [--warmup S] [--think MS]"
+                        + " [--url http://host:port] [--internet] [--seed N]");
+                System.exit(2);
+            }
+        }
+
+        Target target;
+        ProfessionalChatbotEngine engine = null;
+        if (url != null) {
+            target = new HttpTarget(url);
+        } else {
+            engine = new ProfessionalChatbotEngine();
+            engine.loadProfessionalKnowledgeBase();
+            target = new InProcessTarget(engine);
+        }
+
+        System.out.printf(Locale.ROOT, "%d users, %d ms mean think time, %d s warmup, %d s measured, %s%n",
+                users, thinkMillis, warmupSeconds, durationSeconds, url != null ? url : "in-process");
+        LoadGenerator generator = new LoadGenerator(users, Duration.ofMillis(thinkMillis),
+                Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(durationSeconds), useInternet, seed);
+        try {
+            System.out.print(generator.run(target));
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only knowledge base backed by a memory-mapped file written by
+ * KnowledgeBaseBuilder. Opening maps the file and reads the header; the term
+ * dictionary, postings and answers stay in the page cache, and an answer is
+ * decoded only when it is returned. Ranking is the same BM25 ranking as
+ * KnowledgeIndex, so a corpus answers exactly like the same entries put into
+ * an index.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * header        magic, version, entry count, term count, total terms, section positions
+ * termOffsets   int[terms + 1] into termBytes
+ * termBytes     UTF-8 terms in unsigned byte order
+ * postingStarts int[terms + 1] into postings
+ * postings      int entry ids, ascending per term
+ * topicLengths  int[entries], distinct terms per topic
+ * topicOffsets  int[entries + 1] into topicBytes
+ * topicBytes    UTF-8 topics
+ * answerOffsets long[entries + 1] into answerBytes
+ * answerBytes   UTF-8 answers
+ * </pre>
+ * open() checks that the sections follow each other in this order with as
+ * many elements as the header counts. Everything before answerBytes is one
+ * mapping of at most 2 GB, so the int offsets computed from a valid term or
+ * entry id cannot overflow.
+ */
+class MappedKnowledgeBase {
+    public static final String MAX_FUZZY_TERMS_PROPERTY = "chatbot.fuzzy.maxCorpusTerms";
+    static final int DEFAULT_MAX_FUZZY_TERMS = 250000;
+    static final int MAGIC = 0x43424B42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 9 * 8;
+
+    private static final ThreadLocal<SparseAccumulator> ACCUMULATORS = ThreadLocal.withInitial(SparseAccumulator::new);
+
+    private final Path file;
+    private final ByteBuffer index;
+    private final ByteBuffer answers;
+    private final int entryCount;
+    private final int termCount;
+    private final double avgLength;
+    private final int termOffsetsPos;
+    private final int termBytesPos;
+    private final int postingStartsPos;
+    private final int postingsPos;
+    private final int topicLengthsPos;
+    private final int topicOffsetsPos;
+    private final int topicBytesPos;
+    private final int answerOffsetsPos;
+    private volatile FuzzyTermIndex fuzzyTerms;
+    // Guarded by this
+    private boolean fuzzyTermsStarted;
+
+    private MappedKnowledgeBase(Path file, ByteBuffer index, ByteBuffer answers, int entryCount, int termCount,
+                                long totalTerms, long[] positions) {
+        this.file = file;
+        this.index = index;
+        this.answers = answers;
+        this.entryCount = entryCount;
+        this.termCount = termCount;
+        this.avgLength = entryCount == 0 ? 0 : (double) totalTerms / entryCount;
+        this.termOffsetsPos = (int) positions[0];
+        this.termBytesPos = (int) positions[1];
+        this.postingStartsPos = (int) positions[2];
+        this.postingsPos = (int) positions[3];
+        this.topicLengthsPos = (int) positions[4];
+        this.topicOffsetsPos = (int) positions[5];
+        this.topicBytesPos = (int) positions[6];
+        this.answerOffsetsPos = (int) positions[7];
+    }
+
+    /**
+     * Maps a knowledge base file. The mapping stays valid after the channel is
+     * closed and is released when this object is garbage collected.
+     */
+    public static MappedKnowledgeBase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(file + " is not a knowledge base file");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a knowledge base file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported knowledge base version " + version + " in " + file);
+            }
+            int entryCount = header.getInt();
+            int termCount = header.getInt();
+            long totalTerms = header.getLong();
+            long[] positions = new long[9];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = header.getLong();
+            }
+
+            long answerBytesPos = positions[8];
+            long answerBytesLength = channel.size() - answerBytesPos;
+            // A single mapping is limited to 2 GB
+            if (answerBytesPos > Integer.MAX_VALUE || answerBytesLength > Integer.MAX_VALUE || answerBytesLength < 0) {
+                throw new IOException("Knowledge base sections larger than 2 GB are not supported: " + file);
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, answerBytesPos);
+            checkLayout(file, index, entryCount, termCount, positions, answerBytesLength);
+            ByteBuffer answers = channel.map(FileChannel.MapMode.READ_ONLY, answerBytesPos, answerBytesLength);
+            return new MappedKnowledgeBase(file, index, answers, entryCount, termCount, totalTerms, positions);
+        }
+    }
+
+    /**
+     * Checks each section against the header counts and, for the variable
+     * length sections, against the last offset that indexes into them.
+     */
+    private static void checkLayout(Path file, ByteBuffer index, int entryCount, int termCount, long[] positions,
+                                    long answerBytesLength) throws IOException {
+        if (entryCount < 0 || termCount < 0 || positions[0] != HEADER_BYTES) {
+            throw corrupt(file, "header");
+        }
+        for (int i = 1; i < positions.length; i++) {
+            if (positions[i] < positions[i - 1]) throw corrupt(file, "section order");
+        }
+        // Each last offset is read only once the section holding it is known to fit
+        checkSection(file, "termOffsets", positions[0], positions[1], 4L * (termCount + 1));
+        checkSection(file, "termBytes", positions[1], positions[2], index.getInt((int) positions[1] - 4));
+        checkSection(file, "postingStarts", positions[2], positions[3], 4L * (termCount + 1));
+        checkSection(file, "postings", positions[3], positions[4], 4L * index.getInt((int) positions[3] - 4));
+        checkSection(file, "topicLengths", positions[4], positions[5], 4L * entryCount);
+        checkSection(file, "topicOffsets", positions[5], positions[6], 4L * (entryCount + 1));
+        checkSection(file, "topicBytes", positions[6], positions[7], index.getInt((int) positions[6] - 4));
+        checkSection(file, "answerOffsets", positions[7], positions[8], 8L * (entryCount + 1));
+        long answerEnd = index.getLong((int) positions[8] - 8);
+        if (answerEnd < 0 || answerEnd > answerBytesLength) {
+            throw corrupt(file, "answerBytes");
+        }
+    }
+
+    private static void checkSection(Path file, String name, long start, long end, long expectedBytes)
+            throws IOException {
+        if (end - start != expectedBytes) {
+            throw corrupt(file, name);
+        }
+    }
+
+    private static IOException corrupt(Path file, String section) {
+        return new IOException("Corrupt knowledge base " + file + ": " + section + " does not match the header");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    public String getTerm(int termId) {
+        int start = index.getInt(termOffsetsPos + termId * 4);
+        int end = index.getInt(termOffsetsPos + (termId + 1) * 4);
+        return decode(index, termBytesPos + start, end - start);
+    }
+
+    public boolean containsTerm(String term) {
+        return findTerm(term.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    /**
+     * Typo-tolerant index over the term dictionary, or null until it is built.
+     * The first call starts building it on the heap on a background thread,
+     * in time and memory proportional to the number of terms, and it is kept
+     * for the lifetime of this corpus. A dictionary of more than
+     * -Dchatbot.fuzzy.maxCorpusTerms terms gets no index at all.
+     */
+    public FuzzyTermIndex fuzzyTerms() {
+        FuzzyTermIndex built = fuzzyTerms;
+        if (built == null) {
+            startFuzzyTerms();
+        }
+        return built;
+    }
+
+    private synchronized void startFuzzyTerms() {
+        if (fuzzyTermsStarted) return;
+        fuzzyTermsStarted = true;
+        if (termCount > Integer.getInteger(MAX_FUZZY_TERMS_PROPERTY, DEFAULT_MAX_FUZZY_TERMS)) return;
+
+        Thread builder = new Thread(() -> {
+            try {
+                fuzzyTerms = buildFuzzyTerms();
+            } catch (OutOfMemoryError e) {
+                System.err.println("Not enough heap for the typo index of " + file
+                        + "; corpus terms are matched exactly");
+            }
+        }, "fuzzy-index-" + file.getFileName());
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Builds the typo-tolerant index on the calling thread.
+     */
+    FuzzyTermIndex buildFuzzyTerms() {
+        List<String> terms = new ArrayList<String>(termCount);
+        for (int i = 0; i < termCount; i++) {
+            terms.add(getTerm(i));
+        }
+        return new FuzzyTermIndex(terms);
+    }
+
+    public String getTopic(int id) {
+        int start = index.getInt(topicOffsetsPos + id * 4);
+        int end = index.getInt(topicOffsetsPos + (id + 1) * 4);
+        return decode(index, topicBytesPos + start, end - start);
+    }
+
+    public String getAnswer(int id) {
+        long start = index.getLong(answerOffsetsPos + id * 8);
+        long end = index.getLong(answerOffsetsPos + (id + 1) * 8);
+        return decode(answers, (int) start, (int) (end - start));
+    }
+
+    /**
+     * Same contract as KnowledgeIndex.findBestAnswer.
+     */
+    public String findBestAnswer(Collection<String> queryTerms) {
+        if (entryCount == 0) return null;
+
+        SparseAccumulator acc = ACCUMULATORS.get();
+        for (String term : new LinkedHashSet<String>(queryTerms)) {
+            int termId = findTerm(term.getBytes(StandardCharsets.UTF_8));
+            if (termId < 0) continue;
+
+            int start = index.getInt(postingStartsPos + termId * 4);
+            int end = index.getInt(postingStartsPos + (termId + 1) * 4);
+            int df = end - start;
+            double idf = Math.log(1 + (entryCount - df + 0.5) / (df + 0.5));
+            for (int i = start; i < end; i++) {
+                int id = index.getInt(postingsPos + i * 4);
+                double weight = idf * (KnowledgeIndex.K1 + 1)
+                        / (1 + KnowledgeIndex.K1 * (1 - KnowledgeIndex.B + KnowledgeIndex.B * topicLength(id) / avgLength));
+                acc.add(id, weight);
+            }
+        }
+
+        int best = acc.best(this::topicLength, KnowledgeIndex.MIN_PARTIAL_SCORE);
+        acc.reset();
+        return best < 0 ? null : getAnswer(best);
+    }
+
+    /**
+     * Same contract as KnowledgeIndex.sharesTopic.
+     */
+    public boolean sharesTopic(String term, Collection<String> others) {
+        int termId = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        if (termId < 0) return false;
+        int start = index.getInt(postingStartsPos + termId * 4);
+        int end = index.getInt(postingStartsPos + (termId + 1) * 4);
+        for (int i = start; i < end; i++) {
+            if (topicLength(index.getInt(postingsPos + i * 4)) == 1) return true;
+        }
+        for (String other : others) {
+            int otherId = other.equals(term) ? -1 : findTerm(other.getBytes(StandardCharsets.UTF_8));
+            if (otherId < 0) continue;
+            // Both posting lists are ascending
+            int i = start;
+            int j = index.getInt(postingStartsPos + otherId * 4);
+            int otherEnd = index.getInt(postingStartsPos + (otherId + 1) * 4);
+            while (i < end && j < otherEnd) {
+                int cmp = Integer.compare(index.getInt(postingsPos + i * 4), index.getInt(postingsPos + j * 4));
+                if (cmp == 0) return true;
+                if (cmp < 0) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int topicLength(int id) {
+        return index.getInt(topicLengthsPos + id * 4);
+    }
+
+    /**
+     * Binary search over the sorted term dictionary, comparing raw UTF-8 bytes.
+     */
+    private int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTerm(int termId, byte[] term) {
+        int start = termBytesPos + index.getInt(termOffsetsPos + termId * 4);
+        int length = index.getInt(termOffsetsPos + (termId + 1) * 4) - (start - termBytesPos);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(index.get(start + i) & 0xff, term[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private static String decode(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,355 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Multi-pattern phrase classifier.
+ * All phrase rules are compiled once into a single Aho-Corasick automaton
+ * over word-boundary-normalized text, so classifying a message is one scan
+ * no matter how many rules are loaded.
+ *
+ * Rule file format, one rule per line:
+ * <pre>
+ * category LABEL: phrase, another phrase, prefix*
+ * </pre>
+ * Phrases match whole words; a trailing '*' lets the last word match as a
+ * prefix, and a leading '^' only matches at the start of the text. When several rules of a category match, the one listed first wins.
+ * ASCII letters and digits have fixed symbols in the automaton; every other
+ * letter or digit that occurs in a phrase gets one of its own, and the rest
+ * share a single symbol that no phrase contains.
+ */
+class PhraseClassifier {
+    public static final String RULES_PROPERTY = "chatbot.classifierRules";
+    private static final String DEFAULT_RULES = "classifier-rules.txt";
+
+    private static final char BOUNDARY = ' ';
+    // Fed once before the text; never produced by the text itself
+    private static final char START = '\u0002';
+    private static final int ASCII_SYMBOLS = 39;
+    private static final int OTHER = 37;
+
+    private final List<String> categories;
+    private final int[] ruleCategories;
+    private final String[] ruleLabels;
+    // Sorted non-ASCII letters and digits of the phrases; the i-th has symbol ASCII_SYMBOLS + i
+    private final char[] otherChars;
+    private final int[][] transitions;
+    private final int[][] outputs;
+
+    private PhraseClassifier(List<String> categories, int[] ruleCategories, String[] ruleLabels,
+                             char[] otherChars, int[][] transitions, int[][] outputs) {
+        this.categories = categories;
+        this.ruleCategories = ruleCategories;
+        this.ruleLabels = ruleLabels;
+        this.otherChars = otherChars;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Loads the rules named by the chatbot.classifierRules system property,
+     * or the bundled classifier-rules.txt. The bundled rules cannot change,
+     * so they are compiled once per process.
+     */
+    public static PhraseClassifier loadDefault() {
+        String path = System.getProperty(RULES_PROPERTY);
+        if (path == null) {
+            return Bundled.CLASSIFIER;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            return compile(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load classifier rules", e);
+        }
+    }
+
+    private static class Bundled {
+        static final PhraseClassifier CLASSIFIER = loadBundled();
+    }
+
+    private static PhraseClassifier loadBundled() {
+        try {
+            InputStream in = PhraseClassifier.class.getResourceAsStream(DEFAULT_RULES);
+            if (in == null) {
+                throw new IllegalStateException("Classifier rules not found on classpath: " + DEFAULT_RULES);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return compile(reader);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load classifier rules", e);
+        }
+    }
+
+    public static PhraseClassifier compile(Reader source) throws IOException {
+        List<String> categories = new ArrayList<String>();
+        List<Integer> ruleCategories = new ArrayList<Integer>();
+        List<String> ruleLabels = new ArrayList<String>();
+        Builder builder = new Builder();
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int colon = line.indexOf(':');
+            String[] head = colon < 0 ? new String[0] : line.substring(0, colon).trim().split("\\s+");
+            if (head.length != 2) {
+                throw new IOException("Malformed classifier rule at line " + lineNumber + ": " + line);
+            }
+
+            int category = categories.indexOf(head[0]);
+            if (category < 0) {
+                category = categories.size();
+                categories.add(head[0]);
+            }
+            int rule = ruleLabels.size();
+            ruleCategories.add(category);
+            ruleLabels.add(head[1]);
+
+            for (String phrase : line.substring(colon + 1).split(",")) {
+                String pattern = toPattern(phrase);
+                if (pattern != null) {
+                    builder.add(pattern, rule);
+                }
+            }
+        }
+
+        int[] categoryOfRule = new int[ruleCategories.size()];
+        for (int i = 0; i < categoryOfRule.length; i++) {
+            categoryOfRule[i] = ruleCategories.get(i);
+        }
+        return builder.build(categories, categoryOfRule, ruleLabels.toArray(new String[0]));
+    }
+
+    public Classification classify(String text) {
+        int[] bestRule = new int[categories.size()];
+        Arrays.fill(bestRule, Integer.MAX_VALUE);
+
+        // The text is fed as if every run of non-word characters were a single
+        // boundary, with a boundary at both ends
+        int state = transitions[transitions[0][symbol(START, otherChars)]][symbol(BOUNDARY, otherChars)];
+        boolean lastWasBoundary = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                state = step(state, symbol(Character.toLowerCase(c), otherChars), bestRule);
+                lastWasBoundary = false;
+            } else if (!lastWasBoundary) {
+                state = step(state, symbol(BOUNDARY, otherChars), bestRule);
+                lastWasBoundary = true;
+            }
+        }
+        if (!lastWasBoundary) {
+            step(state, symbol(BOUNDARY, otherChars), bestRule);
+        }
+
+        String[] labels = new String[categories.size()];
+        for (int i = 0; i < labels.length; i++) {
+            if (bestRule[i] != Integer.MAX_VALUE) {
+                labels[i] = ruleLabels[bestRule[i]];
+            }
+        }
+        return new Classification(categories, labels);
+    }
+
+    private int step(int state, int symbol, int[] bestRule) {
+        int next = transitions[state][symbol];
+        for (int rule : outputs[next]) {
+            int category = ruleCategories[rule];
+            if (rule < bestRule[category]) {
+                bestRule[category] = rule;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * The phrase as classify() sees text: lowercased char by char, words of
+     * letters and digits, each followed by a boundary, after the start marker
+     * if the phrase is anchored.
+     */
+    private static String toPattern(String phrase) {
+        String trimmed = phrase.trim();
+        boolean prefix = trimmed.endsWith("*");
+        if (prefix) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        boolean anchored = trimmed.startsWith("^");
+        if (anchored) {
+            trimmed = trimmed.substring(1);
+        }
+
+        StringBuilder pattern = new StringBuilder();
+        if (anchored) {
+            pattern.append(START);
+        }
+        int lead = pattern.append(BOUNDARY).length();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                pattern.append(Character.toLowerCase(c));
+            } else if (pattern.charAt(pattern.length() - 1) != BOUNDARY) {
+                pattern.append(BOUNDARY);
+            }
+        }
+        if (pattern.length() == lead) return null;
+        if (pattern.charAt(pattern.length() - 1) != BOUNDARY) {
+            pattern.append(BOUNDARY);
+        }
+        if (prefix) {
+            pattern.setLength(pattern.length() - 1);
+        }
+        return pattern.toString();
+    }
+
+    private static int symbol(char c, char[] otherChars) {
+        if (c == BOUNDARY) return 0;
+        if (c == START) return 38;
+        if (c >= 'a' && c <= 'z') return 1 + (c - 'a');
+        if (c >= '0' && c <= '9') return 27 + (c - '0');
+        int other = Arrays.binarySearch(otherChars, c);
+        return other >= 0 ? ASCII_SYMBOLS + other : OTHER;
+    }
+
+    /**
+     * Labels matched for each rule category.
+     */
+    public static class Classification {
+        private final List<String> categories;
+        private final String[] labels;
+
+        Classification(List<String> categories, String[] labels) {
+            this.categories = categories;
+            this.labels = labels;
+        }
+
+        public String label(String category, String defaultLabel) {
+            int index = categories.indexOf(category);
+            if (index < 0 || labels[index] == null) return defaultLabel;
+            return labels[index];
+        }
+    }
+
+    /**
+     * The distinct labels the rules of a category can produce.
+     */
+    public Set<String> labels(String category) {
+        Set<String> labels = new LinkedHashSet<String>();
+        int index = categories.indexOf(category);
+        for (int rule = 0; rule < ruleLabels.length; rule++) {
+            if (ruleCategories[rule] == index) {
+                labels.add(ruleLabels[rule]);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Trie construction and conversion into a dense transition table. The
+     * patterns are collected first, since the alphabet depends on them.
+     */
+    private static class Builder {
+        private final List<String> patterns = new ArrayList<String>();
+        private final List<Integer> patternRules = new ArrayList<Integer>();
+        private final List<int[]> gotos = new ArrayList<int[]>();
+        private final List<Set<Integer>> matches = new ArrayList<Set<Integer>>();
+        private char[] otherChars;
+        private int alphabet;
+
+        void add(String pattern, int rule) {
+            patterns.add(pattern);
+            patternRules.add(rule);
+        }
+
+        PhraseClassifier build(List<String> categories, int[] ruleCategories, String[] ruleLabels) {
+            SortedSet<Character> others = new TreeSet<Character>();
+            char[] asciiOnly = new char[0];
+            for (String pattern : patterns) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    if (symbol(pattern.charAt(i), asciiOnly) == OTHER) {
+                        others.add(pattern.charAt(i));
+                    }
+                }
+            }
+            otherChars = new char[others.size()];
+            int next = 0;
+            for (char c : others) {
+                otherChars[next++] = c;
+            }
+            alphabet = ASCII_SYMBOLS + otherChars.length;
+
+            newState();
+            for (int i = 0; i < patterns.size(); i++) {
+                insert(patterns.get(i), patternRules.get(i));
+            }
+
+            int[][] transitions = new int[gotos.size()][];
+            int[] failure = new int[gotos.size()];
+            for (int i = 0; i < transitions.length; i++) {
+                transitions[i] = gotos.get(i).clone();
+            }
+
+            // Breadth-first over the trie, filling missing edges from failure links
+            Deque<Integer> queue = new ArrayDeque<Integer>();
+            for (int s = 0; s < alphabet; s++) {
+                int child = transitions[0][s];
+                if (child < 0) {
+                    transitions[0][s] = 0;
+                } else {
+                    failure[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                matches.get(state).addAll(matches.get(failure[state]));
+                for (int s = 0; s < alphabet; s++) {
+                    int child = gotos.get(state)[s];
+                    if (child < 0) {
+                        transitions[state][s] = transitions[failure[state]][s];
+                    } else {
+                        failure[child] = transitions[failure[state]][s];
+                        queue.add(child);
+                    }
+                }
+            }
+
+            int[][] outputs = new int[matches.size()][];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = new int[matches.get(i).size()];
+                int j = 0;
+                for (int rule : matches.get(i)) {
+                    outputs[i][j++] = rule;
+                }
+            }
+            return new PhraseClassifier(new ArrayList<String>(categories), ruleCategories, ruleLabels,
+                    otherChars, transitions, outputs);
+        }
+
+        private void insert(String pattern, int rule) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int symbol = symbol(pattern.charAt(i), otherChars);
+                if (gotos.get(state)[symbol] < 0) {
+                    gotos.get(state)[symbol] = newState();
+                }
+                state = gotos.get(state)[symbol];
+            }
+            matches.get(state).add(rule);
+        }
+
+        private int newState() {
+            int[] row = new int[alphabet];
+            Arrays.fill(row, -1);
+            gotos.add(row);
+            matches.add(new TreeSet<Integer>());
+            return gotos.size() - 1;
+        }
+    }
+}
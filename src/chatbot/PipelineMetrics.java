@@ -0,0 +1,233 @@
+package chatbot;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stage latency histograms and answer-path counters for the chat pipeline.
+ * Recording is lock-free; metrics can be switched off at runtime through JMX
+ * or at startup with -Dchatbot.metrics=false.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+    public static final String ENABLED_PROPERTY = "chatbot.metrics";
+
+    enum Stage { NLP_ANALYSIS, KNOWLEDGE_LOOKUP, WEB_SEARCH, RESPONSE_GENERATION, TOTAL }
+
+    enum AnswerPath { KNOWLEDGE_BASE, WEB_SEARCH, CONTEXTUAL }
+
+    enum SearchEvent { SPECULATIVE, CANCELLED, DEADLINE_EXCEEDED }
+
+    private final Map<Stage, LatencyHistogram> latencies;
+    private final Map<AnswerPath, LongAdder> answers;
+    private final Map<SearchEvent, LongAdder> searches;
+    private volatile boolean enabled;
+    private volatile ResponseCache responseCache;
+    private volatile WebSearchEngine webSearch;
+    private volatile SessionExecutor sessionExecutor;
+    private volatile long knowledgeVersion;
+    private volatile long lastReloadNanos;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+    // Set by register(), guarded by this
+    private ObjectName registeredName;
+
+    public PipelineMetrics() {
+        latencies = new EnumMap<Stage, LatencyHistogram>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+        answers = new EnumMap<AnswerPath, LongAdder>(AnswerPath.class);
+        for (AnswerPath path : AnswerPath.values()) {
+            answers.put(path, new LongAdder());
+        }
+        searches = new EnumMap<SearchEvent, LongAdder>(SearchEvent.class);
+        for (SearchEvent event : SearchEvent.values()) {
+            searches.put(event, new LongAdder());
+        }
+        enabled = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Registers this instance with the platform MBean server as
+     * chatbot:type=PipelineMetrics,name=&lt;name&gt;.
+     */
+    public synchronized void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("chatbot:type=PipelineMetrics,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+                registeredName = objectName;
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register pipeline metrics MBean", e);
+        }
+    }
+
+    /**
+     * Removes the registration made by register(), if any.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            // Already gone
+        }
+        registeredName = null;
+    }
+
+    void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    void setWebSearch(WebSearchEngine webSearch) {
+        this.webSearch = webSearch;
+    }
+
+    void setSessionExecutor(SessionExecutor sessionExecutor) {
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    void recordSearch(SearchEvent event) {
+        if (enabled) {
+            searches.get(event).increment();
+        }
+    }
+
+    void recordLatency(Stage stage, long nanos) {
+        if (enabled) {
+            latencies.get(stage).record(nanos);
+        }
+    }
+
+    void recordAnswer(AnswerPath path) {
+        if (enabled) {
+            answers.get(path).increment();
+        }
+    }
+
+    /**
+     * Recorded on every snapshot publication, even when metrics are disabled.
+     */
+    void recordReload(long version, long nanos) {
+        knowledgeVersion = version;
+        lastReloadNanos = nanos;
+        reloads.increment();
+    }
+
+    void recordReloadFailure() {
+        reloadFailures.increment();
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getRequests() { return latencies.get(Stage.TOTAL).getCount(); }
+    public long getKnowledgeBaseAnswers() { return answers.get(AnswerPath.KNOWLEDGE_BASE).sum(); }
+    public long getWebSearchAnswers() { return answers.get(AnswerPath.WEB_SEARCH).sum(); }
+    public long getContextualAnswers() { return answers.get(AnswerPath.CONTEXTUAL).sum(); }
+
+    public long getResponseCacheHits() { return responseCache == null ? 0 : responseCache.getHits(); }
+    public long getResponseCacheMisses() { return responseCache == null ? 0 : responseCache.getMisses(); }
+    public long getResponseCacheSize() { return responseCache == null ? 0 : responseCache.size(); }
+
+    public long getSpeculativeSearches() { return searches.get(SearchEvent.SPECULATIVE).sum(); }
+    public long getCancelledSearches() { return searches.get(SearchEvent.CANCELLED).sum(); }
+    public long getSearchDeadlinesExceeded() { return searches.get(SearchEvent.DEADLINE_EXCEEDED).sum(); }
+    public long getHedgedSearches() { return webSearch == null ? 0 : webSearch.getHedgedRequests(); }
+
+    public long getQueuedTurns() { return sessionExecutor == null ? 0 : sessionExecutor.getQueueDepth(); }
+    public long getRejectedTurns() { return sessionExecutor == null ? 0 : sessionExecutor.getRejected(); }
+
+    public long getKnowledgeVersion() { return knowledgeVersion; }
+    public long getReloads() { return reloads.sum(); }
+    public long getReloadFailures() { return reloadFailures.sum(); }
+    public double getLastReloadMillis() { return lastReloadNanos / 1e6; }
+
+    public double getTotalLatencyP50() { return percentile(Stage.TOTAL, 50); }
+    public double getTotalLatencyP99() { return percentile(Stage.TOTAL, 99); }
+    public double getNlpAnalysisLatencyP50() { return percentile(Stage.NLP_ANALYSIS, 50); }
+    public double getNlpAnalysisLatencyP99() { return percentile(Stage.NLP_ANALYSIS, 99); }
+    public double getKnowledgeLookupLatencyP50() { return percentile(Stage.KNOWLEDGE_LOOKUP, 50); }
+    public double getKnowledgeLookupLatencyP99() { return percentile(Stage.KNOWLEDGE_LOOKUP, 99); }
+    public double getWebSearchLatencyP50() { return percentile(Stage.WEB_SEARCH, 50); }
+    public double getWebSearchLatencyP99() { return percentile(Stage.WEB_SEARCH, 99); }
+    public double getResponseGenerationLatencyP50() { return percentile(Stage.RESPONSE_GENERATION, 50); }
+    public double getResponseGenerationLatencyP99() { return percentile(Stage.RESPONSE_GENERATION, 99); }
+
+    /**
+     * Plain-text snapshot, one metric per line.
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("chatbot_metrics_enabled ").append(enabled ? 1 : 0).append('\n');
+        for (AnswerPath path : AnswerPath.values()) {
+            sb.append("chatbot_answers_total{path=\"").append(path.name().toLowerCase())
+                    .append("\"} ").append(answers.get(path).sum()).append('\n');
+        }
+        sb.append("chatbot_response_cache_hits_total ").append(getResponseCacheHits()).append('\n');
+        sb.append("chatbot_response_cache_misses_total ").append(getResponseCacheMisses()).append('\n');
+        sb.append("chatbot_response_cache_entries ").append(getResponseCacheSize()).append('\n');
+        for (SearchEvent event : SearchEvent.values()) {
+            sb.append("chatbot_searches_total{event=\"").append(event.name().toLowerCase())
+                    .append("\"} ").append(searches.get(event).sum()).append('\n');
+        }
+        sb.append("chatbot_searches_total{event=\"hedged\"} ").append(getHedgedSearches()).append('\n');
+        SessionExecutor executor = sessionExecutor;
+        if (executor != null) {
+            for (int shard = 0; shard < executor.getShardCount(); shard++) {
+                sb.append("chatbot_executor_queue_depth{shard=\"").append(shard).append("\"} ")
+                        .append(executor.getQueueDepth(shard)).append('\n');
+            }
+            sb.append("chatbot_executor_queue_capacity ").append(executor.getQueueCapacity()).append('\n');
+        }
+        sb.append("chatbot_executor_rejected_total ").append(getRejectedTurns()).append('\n');
+        sb.append("chatbot_knowledge_version ").append(getKnowledgeVersion()).append('\n');
+        sb.append("chatbot_reloads_total ").append(getReloads()).append('\n');
+        sb.append("chatbot_reload_failures_total ").append(getReloadFailures()).append('\n');
+        sb.append("chatbot_last_reload_ms ").append(format(getLastReloadMillis())).append('\n');
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String label = "{collector=\"" + collector.getName() + "\"} ";
+            sb.append("chatbot_gc_collections_total").append(label).append(collector.getCollectionCount()).append('\n');
+            sb.append("chatbot_gc_time_ms_total").append(label).append(collector.getCollectionTime()).append('\n');
+        }
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = latencies.get(stage);
+            String name = "chatbot_latency_us{stage=\"" + stage.name().toLowerCase() + "\"";
+            sb.append(name).append(",stat=\"count\"} ").append(histogram.getCount()).append('\n');
+            sb.append(name).append(",stat=\"mean\"} ").append(format(histogram.getMean(TimeUnit.MICROSECONDS))).append('\n');
+            sb.append(name).append(",stat=\"p50\"} ").append(format(percentile(stage, 50))).append('\n');
+            sb.append(name).append(",stat=\"p99\"} ").append(format(percentile(stage, 99))).append('\n');
+            sb.append(name).append(",stat=\"p999\"} ").append(format(percentile(stage, 99.9))).append('\n');
+            sb.append(name).append(",stat=\"max\"} ").append(format(histogram.getMax(TimeUnit.MICROSECONDS))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : latencies.values()) {
+            histogram.reset();
+        }
+        for (LongAdder counter : answers.values()) {
+            counter.reset();
+        }
+        for (LongAdder counter : searches.values()) {
+            counter.reset();
+        }
+    }
+
+    private double percentile(Stage stage, double percentile) {
+        return latencies.get(stage).getPercentile(percentile, TimeUnit.MICROSECONDS);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
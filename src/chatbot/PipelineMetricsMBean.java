@@ -0,0 +1,45 @@
+package chatbot;
+
+/**
+ * JMX view of PipelineMetrics. Latencies are in microseconds.
+ */
+public interface PipelineMetricsMBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    long getRequests();
+    long getKnowledgeBaseAnswers();
+    long getWebSearchAnswers();
+    long getContextualAnswers();
+
+    long getResponseCacheHits();
+    long getResponseCacheMisses();
+    long getResponseCacheSize();
+
+    long getSpeculativeSearches();
+    long getCancelledSearches();
+    long getSearchDeadlinesExceeded();
+    long getHedgedSearches();
+
+    long getQueuedTurns();
+    long getRejectedTurns();
+
+    long getKnowledgeVersion();
+    long getReloads();
+    long getReloadFailures();
+    double getLastReloadMillis();
+
+    double getTotalLatencyP50();
+    double getTotalLatencyP99();
+    double getNlpAnalysisLatencyP50();
+    double getNlpAnalysisLatencyP99();
+    double getKnowledgeLookupLatencyP50();
+    double getKnowledgeLookupLatencyP99();
+    double getWebSearchLatencyP50();
+    double getWebSearchLatencyP99();
+    double getResponseGenerationLatencyP50();
+    double getResponseGenerationLatencyP99();
+
+    String dump();
+    void reset();
+}
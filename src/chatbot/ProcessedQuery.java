@@ -0,0 +1,48 @@
+package chatbot;
+
+import java.util.*;
+
+class ProcessedQuery {
+    private String normalizedText;
+    private List<String> keywords;
+    private QueryType queryType;
+    private String intent;
+    private boolean needsCurrentInfo;
+    private List<String> contextTerms;
+
+    public ProcessedQuery(String normalizedText, List<String> keywords, QueryType queryType, String intent, boolean needsCurrentInfo) {
+        this(normalizedText, keywords, queryType, intent, needsCurrentInfo, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param contextTerms topic terms of earlier turns that a follow-up refers to
+     */
+    public ProcessedQuery(String normalizedText, List<String> keywords, QueryType queryType, String intent,
+                          boolean needsCurrentInfo, List<String> contextTerms) {
+        this.normalizedText = normalizedText;
+        this.keywords = keywords;
+        this.queryType = queryType;
+        this.intent = intent;
+        this.needsCurrentInfo = needsCurrentInfo;
+        this.contextTerms = contextTerms;
+    }
+
+    public String getNormalizedText() { return normalizedText; }
+    public List<String> getKeywords() { return keywords; }
+    public QueryType getQueryType() { return queryType; }
+    public String getIntent() { return intent; }
+    public boolean needsCurrentInfo() { return needsCurrentInfo; }
+    public List<String> getContextTerms() { return contextTerms; }
+
+    /**
+     * Keywords followed by the context terms of a follow-up.
+     */
+    public List<String> getTopicTerms() {
+        if (contextTerms.isEmpty()) return keywords;
+        List<String> terms = new ArrayList<String>(keywords);
+        terms.addAll(contextTerms);
+        return terms;
+    }
+
+    public String getSearchTerms() { return String.join(" ", getTopicTerms()); }
+}
@@ -0,0 +1,527 @@
+package chatbot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Professional Chatbot Engine with Internet Search and Advanced AI
+ * Safe for concurrent callers; each session id gets its own conversation memory.
+ * The engine owns threads and files; close it when done.
+ */
+class ProfessionalChatbotEngine implements Closeable {
+    public static final String DEFAULT_SESSION = "default";
+    public static final String RESPONSE_CACHE_PROPERTY = "chatbot.responseCache.entries";
+    public static final String KNOWLEDGE_FILE_PROPERTY = "chatbot.knowledgeFile";
+    public static final String CONTENT_DIR_PROPERTY = "chatbot.contentDir";
+    public static final String BUSY_RESPONSE =
+            "I'm handling a lot of conversations right now. Please try again in a moment.";
+
+    // Knowledge, NLP tables and response patterns; read once per request, never locked
+    private final AtomicReference<EngineSnapshot> snapshot = new AtomicReference<EngineSnapshot>(EngineSnapshot.initial());
+    // Sources of the next snapshot, guarded by publishLock
+    private final Object publishLock = new Object();
+    private boolean builtInKnowledge;
+    private Path contentDirectory;
+    private MappedKnowledgeBase attachedCorpus;
+    private final Map<String, String> addedKnowledge = new LinkedHashMap<String, String>();
+    private long nextVersion = 1;
+    private ContentReloader contentReloader;
+
+    private WebSearchEngine webSearch;
+    private volatile SearchPolicy searchPolicy = SearchPolicy.fromSystemProperties();
+    private SessionStore sessions;
+    private PipelineMetrics metrics;
+    private ResponseCache responseCache;
+    private ExecutorService streamExecutor;
+    private SessionExecutor sessionExecutor;
+    private ConversationJournal journal;
+    // Closes the journal from the properties on exit; removed again by close()
+    private Thread journalCloser;
+
+    public ProfessionalChatbotEngine() {
+        webSearch = new WebSearchEngine();
+        sessions = SessionStore.fromSystemProperties();
+        responseCache = new ResponseCache(Integer.getInteger(RESPONSE_CACHE_PROPERTY, 10000));
+        metrics = new PipelineMetrics();
+        metrics.setResponseCache(responseCache);
+        metrics.setWebSearch(webSearch);
+        streamExecutor = newTaskExecutor();
+        sessionExecutor = SessionExecutor.fromSystemProperties();
+        metrics.setSessionExecutor(sessionExecutor);
+        try {
+            ConversationJournal configured = ConversationJournal.fromSystemProperties();
+            if (configured != null) {
+                attachJournal(configured);
+                // Write the checkpoint on a normal exit so the next start only scans the tail
+                journalCloser = new Thread(() -> {
+                    try {
+                        configured.close();
+                    } catch (IOException e) {
+                        System.err.println("Could not close the conversation journal: " + e.getMessage());
+                    }
+                }, "journal-close");
+                Runtime.getRuntime().addShutdownHook(journalCloser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the conversation journal", e);
+        }
+    }
+
+    /**
+     * Journals every turn from now on; sessions that are not in memory are
+     * restored from the journal when they are next used. Pass null to detach.
+     */
+    public void attachJournal(ConversationJournal journal) {
+        this.journal = journal;
+        sessions.setJournal(journal);
+    }
+
+    public ConversationJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Loads the built-in knowledge and response patterns, the corpus named by
+     * -Dchatbot.knowledgeFile and the content directory named by
+     * -Dchatbot.contentDir, which is then watched for changes.
+     */
+    public void loadProfessionalKnowledgeBase() {
+        String knowledgeFile = System.getProperty(KNOWLEDGE_FILE_PROPERTY);
+        String contentDir = System.getProperty(CONTENT_DIR_PROPERTY);
+        synchronized (publishLock) {
+            builtInKnowledge = true;
+            if (knowledgeFile != null) {
+                try {
+                    attachedCorpus = MappedKnowledgeBase.open(Paths.get(knowledgeFile));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open knowledge base " + knowledgeFile, e);
+                }
+            }
+            if (contentDir != null) {
+                contentDirectory = Paths.get(contentDir);
+            }
+            try {
+                reload();
+                if (contentDirectory != null && contentReloader == null) {
+                    contentReloader = ContentReloader.watch(contentDirectory, this);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load content from " + contentDir, e);
+            }
+        }
+    }
+
+    static void putBuiltInKnowledge(KnowledgeIndex knowledgeBase) {
+        // Technical Knowledge
+        knowledgeBase.put("java programming", "Java is a robust, object-oriented programming language. Key features include platform independence, strong memory management, and extensive libraries. Popular frameworks include Spring, Hibernate, and Maven for enterprise development.");
+        knowledgeBase.put("python programming", "Python is a versatile, high-level programming language known for its readability and extensive libraries. It's widely used in data science, web development, automation, and AI/ML applications.");
+        knowledgeBase.put("artificial intelligence", "AI involves creating systems that can perform tasks typically requiring human intelligence. This includes machine learning, natural language processing, computer vision, and robotics.");
+        knowledgeBase.put("machine learning", "Machine learning is a subset of AI that enables systems to learn and improve from data without explicit programming. Common algorithms include neural networks, decision trees, and clustering.");
+
+        // Business Knowledge
+        knowledgeBase.put("project management", "Effective project management involves planning, executing, and monitoring projects to achieve specific goals within constraints. Popular methodologies include Agile, Scrum, and Waterfall.");
+        knowledgeBase.put("data analysis", "Data analysis involves examining, cleaning, and modeling data to discover insights and support decision-making. Tools include Excel, SQL, Python, R, and visualization platforms like Tableau.");
+
+        // General Knowledge
+        knowledgeBase.put("climate change", "Climate change refers to long-term shifts in global temperatures and weather patterns. It's primarily driven by human activities and greenhouse gas emissions, requiring urgent global action.");
+        knowledgeBase.put("renewable energy", "Renewable energy sources include solar, wind, hydroelectric, and geothermal power. These sustainable alternatives are crucial for reducing carbon emissions and combating climate change.");
+    }
+
+    /**
+     * Rebuilds the snapshot from all of its sources and publishes it. Later
+     * sources win: built-in knowledge, then the content directory, then entries
+     * added at runtime. Content files replace the default synonyms and stop
+     * words, and the default intros of the intents they list. On failure the
+     * current snapshot stays in place.
+     */
+    public void reload() throws IOException {
+        synchronized (publishLock) {
+            long start = System.nanoTime();
+            try {
+                ContentReloader.Content content = contentDirectory == null
+                        ? new ContentReloader.Content() : ContentReloader.read(contentDirectory);
+
+                KnowledgeIndex knowledge = new KnowledgeIndex();
+                if (builtInKnowledge) {
+                    putBuiltInKnowledge(knowledge);
+                }
+                for (Map.Entry<String, String> entry : content.knowledge.entrySet()) {
+                    knowledge.put(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<String, String> entry : addedKnowledge.entrySet()) {
+                    knowledge.put(entry.getKey(), entry.getValue());
+                }
+
+                AdvancedNLPProcessor nlp = new AdvancedNLPProcessor(
+                        content.synonyms != null ? content.synonyms : AdvancedNLPProcessor.defaultSynonyms(),
+                        content.stopWords != null ? content.stopWords : AdvancedNLPProcessor.defaultStopWords());
+
+                Map<String, List<String>> patterns = builtInKnowledge
+                        ? IntelligentResponseGenerator.defaultPatterns() : new HashMap<String, List<String>>();
+                patterns.putAll(content.responses);
+
+                MappedKnowledgeBase corpus = content.corpus != null ? content.corpus : attachedCorpus;
+                publish(new EngineSnapshot(nextVersion++, knowledge, corpus, nlp,
+                        new IntelligentResponseGenerator(patterns)), start);
+            } catch (IOException | RuntimeException e) {
+                metrics.recordReloadFailure();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Serves a corpus compiled by KnowledgeBaseBuilder behind the in-memory
+     * entries, replacing any corpus attached before. A knowledge.kb in the
+     * content directory takes precedence.
+     */
+    public void attachKnowledgeFile(Path file) throws IOException {
+        MappedKnowledgeBase opened = MappedKnowledgeBase.open(file);
+        synchronized (publishLock) {
+            long start = System.nanoTime();
+            attachedCorpus = opened;
+            publish(snapshot.get().withCorpus(opened, nextVersion++), start);
+        }
+    }
+
+    /**
+     * Adds one entry. Every call copies the in-memory index, so add many
+     * entries with addKnowledge(Map).
+     */
+    public void addKnowledge(String topic, String answer) {
+        addKnowledge(Collections.singletonMap(topic, answer));
+    }
+
+    public void addKnowledge(Map<String, String> entries) {
+        synchronized (publishLock) {
+            long start = System.nanoTime();
+            addedKnowledge.putAll(entries);
+            publish(snapshot.get().withKnowledge(entries, nextVersion++), start);
+        }
+    }
+
+    private void publish(EngineSnapshot next, long start) {
+        snapshot.set(next);
+        // Keys carry the version, so this only frees the entries of older snapshots
+        responseCache.clear();
+        metrics.recordReload(next.getVersion(), System.nanoTime() - start);
+    }
+
+    public SearchPolicy getSearchPolicy() {
+        return searchPolicy;
+    }
+
+    public void setSearchPolicy(SearchPolicy searchPolicy) {
+        this.searchPolicy = searchPolicy;
+    }
+
+    public EngineSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public String processMessage(String input, boolean useInternet) {
+        return processMessage(DEFAULT_SESSION, input, useInternet);
+    }
+
+    /**
+     * Runs the turn on the session executor like submitMessage and waits for
+     * the response, but waits for room when the session's shard is full
+     * instead of failing. Not to be called from inside a turn.
+     */
+    public String processMessage(String sessionId, String input, boolean useInternet) {
+        try {
+            return sessionExecutor.submitBlocking(sessionId, () -> processMessageAsync(sessionId, input, useInternet))
+                    .join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for room on the session executor");
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the pipeline on the calling thread up to the web search; a web search
+     * completes the returned future later without holding a thread.
+     * Cancelling the future before it completes leaves the reply out of the
+     * conversation memory.
+     */
+    public CompletableFuture<String> processMessageAsync(String sessionId, String input, boolean useInternet) {
+        final long start = System.nanoTime();
+        CompletableFuture<String> response;
+        try {
+            response = answer(sessionId, input, useInternet, start);
+        } catch (RuntimeException e) {
+            metrics.recordLatency(PipelineMetrics.Stage.TOTAL, System.nanoTime() - start);
+            throw e;
+        }
+        response.whenComplete((text, error) ->
+                metrics.recordLatency(PipelineMetrics.Stage.TOTAL, System.nanoTime() - start));
+        return response;
+    }
+
+    /**
+     * Runs the turn on the session's shard of the session executor, after the
+     * session's earlier turns. When the shard is full the future fails at once
+     * with a RejectedExecutionException; answer those with BUSY_RESPONSE.
+     */
+    public CompletableFuture<String> submitMessage(String sessionId, String input, boolean useInternet) {
+        return sessionExecutor.submit(sessionId, () -> processMessageAsync(sessionId, input, useInternet));
+    }
+
+    /**
+     * Whether the error is a turn rejected by a full session executor.
+     */
+    public static boolean isBusy(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Streaming variant of submitMessage: publishes the response in chunks,
+     * honouring the subscriber's demand. Cancelling the subscription stops the
+     * pending pipeline, e.g. when the user sends another message.
+     */
+    public Flow.Publisher<String> streamMessage(String sessionId, String input, boolean useInternet) {
+        return new ResponseStream(streamExecutor, () -> submitMessage(sessionId, input, useInternet));
+    }
+
+    public SessionExecutor getSessionExecutor() {
+        return sessionExecutor;
+    }
+
+    /**
+     * Lets the turns already submitted finish, then stops the session shards
+     * and the stream executor, stops watching the content directory, closes
+     * the journal and unregisters the metrics. Turns submitted afterwards are
+     * rejected as busy.
+     */
+    public void close() throws IOException {
+        try {
+            sessionExecutor.close();
+            streamExecutor.shutdown();
+            // Chunks already produced still reach their subscribers
+            streamExecutor.awaitTermination(SessionExecutor.CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            streamExecutor.shutdownNow();
+        }
+        metrics.unregister();
+        if (journalCloser != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(journalCloser);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook closes the journal too
+            }
+            journalCloser = null;
+        }
+
+        ContentReloader reloader;
+        synchronized (publishLock) {
+            reloader = contentReloader;
+            contentReloader = null;
+        }
+        try {
+            if (reloader != null) {
+                reloader.close();
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * One virtual thread per task when the runtime supports it (JDK 21+),
+     * otherwise a cached pool of daemon threads.
+     */
+    static ExecutorService newTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "chatbot-task");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private CompletableFuture<String> answer(String sessionId, String input, boolean useInternet, long requestStart) {
+        // The whole request, including a late web search result, uses this snapshot
+        EngineSnapshot content = snapshot.get();
+        SearchPolicy policy = searchPolicy;
+        ConversationMemory memory = sessions.get(sessionId);
+        journal(sessionId, ConversationJournal.Role.USER, input);
+        memory.addUserMessage(input);
+
+        // Advanced NLP processing
+        long stageStart = System.nanoTime();
+        ProcessedQuery query = content.getNlp().analyzeQuery(input, memory.getContextTerms());
+        // Only terms the knowledge knows carry a topic; a follow-up without one keeps the current topic alive
+        List<String> topics = content.knownTerms(query.getKeywords());
+        memory.observeTopics(topics.isEmpty() ? query.getContextTerms() : topics);
+        stageStart = recordStage(PipelineMetrics.Stage.NLP_ANALYSIS, stageStart);
+
+        // Use internet search if enabled and query seems to need current info
+        boolean wantsSearch = useInternet && query.needsCurrentInfo();
+        long searchStart = stageStart;
+        CompletableFuture<String> search = null;
+        if (wantsSearch && policy.getMode() == SearchPolicy.Mode.SPECULATIVE) {
+            // Start the search now so it runs while the knowledge base is consulted
+            search = webSearch.searchLive(query.getSearchTerms());
+            metrics.recordSearch(PipelineMetrics.SearchEvent.SPECULATIVE);
+        }
+
+        // Check for direct knowledge base match, served from the response cache when possible
+        String knowledgeResponse = cachedKnowledgeMatch(content, query);
+        stageStart = recordStage(PipelineMetrics.Stage.KNOWLEDGE_LOOKUP, stageStart);
+        if (knowledgeResponse != null
+                && (!wantsSearch || policy.getPriority() == SearchPolicy.Priority.KNOWLEDGE_BASE)) {
+            if (search != null && search.cancel(false)) {
+                metrics.recordSearch(PipelineMetrics.SearchEvent.CANCELLED);
+            }
+            return CompletableFuture.completedFuture(
+                    knowledgeResponse(content, sessionId, query, memory, knowledgeResponse, stageStart));
+        }
+
+        if (wantsSearch) {
+            if (search == null) {
+                searchStart = stageStart;
+                search = webSearch.searchLive(query.getSearchTerms());
+            }
+            long remaining = policy.getDeadline().toNanos() - (System.nanoTime() - requestStart);
+            search.orTimeout(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            final long webStart = searchStart;
+            final CompletableFuture<String> pendingSearch = search;
+            CompletableFuture<String> response = search.handle((searchResult, error) -> {
+                long generationStart = recordStage(PipelineMetrics.Stage.WEB_SEARCH, webStart);
+                if (error instanceof TimeoutException) {
+                    metrics.recordSearch(PipelineMetrics.SearchEvent.DEADLINE_EXCEEDED);
+                }
+                if (searchResult == null && knowledgeResponse != null) {
+                    // No live answer in time: the knowledge base answer is the fallback
+                    return knowledgeResponse(content, sessionId, query, memory, knowledgeResponse, generationStart);
+                }
+                String text = searchResult != null ? searchResult : webSearch.fallbackResponse(query.getSearchTerms());
+                String reply = content.getResponses().formatSearchResponse(text, query);
+                recordStage(PipelineMetrics.Stage.RESPONSE_GENERATION, generationStart);
+                metrics.recordAnswer(PipelineMetrics.AnswerPath.WEB_SEARCH);
+                rememberResponse(sessionId, memory, reply);
+                return reply;
+            });
+            // A cancelled request lets go of its search
+            response.whenComplete((text, error) -> {
+                if (response.isCancelled()) {
+                    pendingSearch.cancel(false);
+                }
+            });
+            return response;
+        }
+
+        return CompletableFuture.completedFuture(contextualResponse(content, sessionId, query, memory, stageStart));
+    }
+
+    private String knowledgeResponse(EngineSnapshot content, String sessionId, ProcessedQuery query,
+                                     ConversationMemory memory, String knowledgeAnswer, long stageStart) {
+        String response = content.getResponses().enhanceResponse(knowledgeAnswer, query);
+        recordStage(PipelineMetrics.Stage.RESPONSE_GENERATION, stageStart);
+        metrics.recordAnswer(PipelineMetrics.AnswerPath.KNOWLEDGE_BASE);
+        rememberResponse(sessionId, memory, response);
+        return response;
+    }
+
+    private String contextualResponse(EngineSnapshot content, String sessionId, ProcessedQuery query,
+                                      ConversationMemory memory, long stageStart) {
+        // Generate intelligent response based on context
+        String response = content.getResponses().generateContextualResponse(query);
+        recordStage(PipelineMetrics.Stage.RESPONSE_GENERATION, stageStart);
+        metrics.recordAnswer(PipelineMetrics.AnswerPath.CONTEXTUAL);
+        rememberResponse(sessionId, memory, response);
+        return response;
+    }
+
+    private void rememberResponse(String sessionId, ConversationMemory memory, String response) {
+        journal(sessionId, ConversationJournal.Role.ASSISTANT, response);
+        memory.addAssistantResponse(response);
+    }
+
+    /**
+     * Called before the turn is added to the memory, so a turn that could not
+     * be journaled is not remembered either.
+     */
+    private void journal(String sessionId, ConversationJournal.Role role, String text) {
+        if (journal == null) return;
+        try {
+            journal.append(sessionId, role, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal the conversation turn", e);
+        }
+    }
+
+    private long recordStage(PipelineMetrics.Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        metrics.recordLatency(stage, now - stageStart);
+        return now;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    private String cachedKnowledgeMatch(EngineSnapshot content, ProcessedQuery query) {
+        String key = ResponseCache.keyOf(query, content.getVersion());
+        ResponseCache.Lookup cached = responseCache.get(key);
+        if (cached != null) {
+            return cached.getKnowledgeAnswer();
+        }
+        String answer = findKnowledgeMatch(content, query);
+        responseCache.put(key, answer);
+        return answer;
+    }
+
+    String findKnowledgeMatch(ProcessedQuery query) {
+        return findKnowledgeMatch(snapshot.get(), query);
+    }
+
+    private static String findKnowledgeMatch(EngineSnapshot content, ProcessedQuery query) {
+        // Ranked lookup over the topic index, by keywords only: stop words would match almost any topic
+        String answer = content.findKnowledgeMatch(query.getKeywords());
+        if (answer == null && !query.getContextTerms().isEmpty()) {
+            // A topic the follow-up names itself wins over the one it refers to
+            answer = content.findKnowledgeMatch(query.getTopicTerms());
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,154 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Single-pass query normalizer.
+ * Lowercases the input, rewrites synonyms on word boundaries and extracts
+ * keywords in one scan, so the per-message cost does not depend on how many
+ * synonyms are configured.
+ *
+ * Rewrites are applied once per input word: the replacement text is never
+ * rewritten again, so chains such as "tell" -> "explain" -> "describe"
+ * resolve to "explain" regardless of map iteration order.
+ */
+class QueryNormalizer {
+    private final Map<String, String> synonyms;
+    private final Set<String> stopWords;
+    // Stop words and the words on both sides of the synonyms
+    private final Set<String> vocabulary;
+
+    public QueryNormalizer(Map<String, String> synonyms, Set<String> stopWords) {
+        this.synonyms = new HashMap<String, String>(synonyms);
+        this.stopWords = new HashSet<String>(stopWords);
+        this.vocabulary = new HashSet<String>(stopWords);
+        for (Map.Entry<String, String> synonym : synonyms.entrySet()) {
+            vocabulary.add(synonym.getKey());
+            vocabulary.addAll(KnowledgeIndex.tokenize(synonym.getValue()));
+        }
+    }
+
+    /**
+     * Whether the word is a stop word or appears in a synonym, so it is a real
+     * word even when no knowledge topic contains it.
+     */
+    public boolean isVocabularyWord(String word) {
+        return vocabulary.contains(word);
+    }
+
+    public Result normalize(String input) {
+        String text = input.toLowerCase().trim();
+        StringBuilder normalized = new StringBuilder(text.length() + 16);
+        KeywordCollector keywords = new KeywordCollector(stopWords);
+
+        int i = 0;
+        boolean afterLetterOrDigit = false;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            if (!isWordPart(cp, afterLetterOrDigit)) {
+                normalized.appendCodePoint(cp);
+                keywords.accept(cp);
+                afterLetterOrDigit = isNonSpacingMark(cp) && afterLetterOrDigit;
+                i += Character.charCount(cp);
+                continue;
+            }
+
+            // Same notion of a word as the regex \b boundary
+            int start = i;
+            while (i < text.length()) {
+                cp = text.codePointAt(i);
+                if (!isWordPart(cp, afterLetterOrDigit)) break;
+                if (!isNonSpacingMark(cp)) {
+                    afterLetterOrDigit = Character.isLetterOrDigit(cp);
+                }
+                i += Character.charCount(cp);
+            }
+
+            String word = text.substring(start, i);
+            String replacement = synonyms.get(word);
+            String output = replacement != null ? replacement : word;
+            normalized.append(output);
+            for (int j = 0; j < output.length(); j++) {
+                keywords.accept(output.charAt(j));
+            }
+        }
+
+        return new Result(normalized.toString(), keywords.finish());
+    }
+
+    /**
+     * Whether the text is one word as normalize() splits the input; only such
+     * synonyms can ever match.
+     */
+    public static boolean isWord(String text) {
+        if (text.isEmpty()) return false;
+        boolean afterLetterOrDigit = false;
+        for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+            int cp = text.codePointAt(i);
+            if (!isWordPart(cp, afterLetterOrDigit)) return false;
+            if (!isNonSpacingMark(cp)) {
+                afterLetterOrDigit = Character.isLetterOrDigit(cp);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordPart(int cp, boolean afterLetterOrDigit) {
+        if (cp == '_' || Character.isLetterOrDigit(cp)) return true;
+        return isNonSpacingMark(cp) && afterLetterOrDigit;
+    }
+
+    private static boolean isNonSpacingMark(int cp) {
+        return Character.getType(cp) == Character.NON_SPACING_MARK;
+    }
+
+    /**
+     * Builds keywords from ASCII letters and digits, splitting on whitespace and
+     * dropping every other character, then filters stop words and short words.
+     */
+    private static class KeywordCollector {
+        private final Set<String> stopWords;
+        private final List<String> keywords = new ArrayList<String>();
+        private final StringBuilder current = new StringBuilder();
+
+        KeywordCollector(Set<String> stopWords) {
+            this.stopWords = stopWords;
+        }
+
+        void accept(int cp) {
+            if ((cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9')) {
+                current.append((char) cp);
+            } else if (cp == ' ' || cp == '\t' || cp == '\n' || cp == '\u000B' || cp == '\f' || cp == '\r') {
+                flush();
+            }
+        }
+
+        List<String> finish() {
+            flush();
+            return keywords;
+        }
+
+        private void flush() {
+            if (current.length() > 2) {
+                String word = current.toString();
+                if (!stopWords.contains(word)) {
+                    keywords.add(word);
+                }
+            }
+            current.setLength(0);
+        }
+    }
+
+    public static class Result {
+        private final String normalizedText;
+        private final List<String> keywords;
+
+        Result(String normalizedText, List<String> keywords) {
+            this.normalizedText = normalizedText;
+            this.keywords = keywords;
+        }
+
+        public String getNormalizedText() { return normalizedText; }
+        public List<String> getKeywords() { return keywords; }
+    }
+}
@@ -0,0 +1,8 @@
+package chatbot;
+
+/**
+ * Enhanced data structures
+ */
+enum QueryType {
+    QUESTION, EXPLANATION, HELP_REQUEST, GREETING, FAREWELL, GRATITUDE, STATEMENT
+}
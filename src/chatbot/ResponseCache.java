@@ -0,0 +1,112 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of knowledge base lookups, keyed by the canonical form of
+ * a ProcessedQuery.
+ *
+ * Only the part of a response that is a pure function of the query is cached:
+ * the knowledge base answer before enhanceResponse adds its random intro, or
+ * the fact that the knowledge base has no answer. Intros, web search results
+ * and contextual responses are still produced per request.
+ */
+class ResponseCache {
+    // Shared by every cached miss
+    private static final Lookup NO_MATCH = new Lookup(null);
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Lookup> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long evictions;
+
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Lookup>(16, 0.75f, true);
+    }
+
+    /**
+     * Canonical key: the snapshot version, the distinct lookup terms in sorted
+     * order, the context terms of a follow-up, then intent and query type.
+     * Word order, repeated words and punctuation do not matter. The version
+     * keeps a lookup that finishes after a reload from answering requests on
+     * the new snapshot.
+     */
+    public static String keyOf(ProcessedQuery query, long version) {
+        TreeSet<String> terms = new TreeSet<String>(query.getKeywords());
+        StringBuilder key = new StringBuilder().append(version).append('|');
+        for (String term : terms) {
+            key.append(term).append(' ');
+        }
+        // A follow-up falls back to the topic it refers to, so that is part of its key
+        for (String term : new TreeSet<String>(query.getContextTerms())) {
+            key.append('+').append(term);
+        }
+        return key.append('|').append(query.getIntent()).append('|').append(query.getQueryType()).toString();
+    }
+
+    /**
+     * Returns the cached lookup, or null when the key has not been seen.
+     * A cached miss is reported as a Lookup whose answer is null.
+     */
+    public Lookup get(String key) {
+        Lookup lookup;
+        synchronized (entries) {
+            lookup = entries.get(key);
+        }
+        if (lookup == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return lookup;
+    }
+
+    public void put(String key, String knowledgeAnswer) {
+        synchronized (entries) {
+            entries.put(key, knowledgeAnswer == null ? NO_MATCH : new Lookup(knowledgeAnswer));
+            if (entries.size() > maxEntries) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Drops every entry; called whenever a new snapshot is published.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getEvictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    public static class Lookup {
+        private final String knowledgeAnswer;
+
+        Lookup(String knowledgeAnswer) {
+            this.knowledgeAnswer = knowledgeAnswer;
+        }
+
+        public String getKnowledgeAnswer() { return knowledgeAnswer; }
+    }
+}
@@ -0,0 +1,153 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-subscriber publisher of response chunks.
+ *
+ * The pipeline starts on the executor when the subscriber arrives, so
+ * subscribing from the EDT never blocks it. The response is handed over in
+ * sentence-sized chunks, only as fast as the subscriber requests them.
+ * Cancelling the subscription cancels the pipeline future, which also skips
+ * recording the reply in the conversation memory if it has not finished yet.
+ */
+class ResponseStream implements Flow.Publisher<String> {
+    private final Executor executor;
+    private final Supplier<CompletableFuture<String>> pipeline;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public ResponseStream(Executor executor, Supplier<CompletableFuture<String>> pipeline) {
+        this.executor = executor;
+        this.pipeline = pipeline;
+    }
+
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) { }
+                public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("A response stream can only be subscribed once"));
+            return;
+        }
+        ChunkSubscription subscription = new ChunkSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        executor.execute(subscription::start);
+    }
+
+    /**
+     * Splits a response after sentence ends and line breaks. Concatenating the
+     * chunks gives back the response unchanged.
+     */
+    static List<String> chunk(String response) {
+        List<String> chunks = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < response.length(); i++) {
+            char c = response.charAt(i);
+            boolean sentenceEnd = (c == '.' || c == '!' || c == '?' || c == ':')
+                    && i + 1 < response.length() && response.charAt(i + 1) == ' ';
+            if (sentenceEnd) {
+                i++;
+            }
+            if (sentenceEnd || c == '\n') {
+                chunks.add(response.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < response.length()) {
+            chunks.add(response.substring(start));
+        }
+        return chunks;
+    }
+
+    private class ChunkSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super String> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Serializes drain() so signals never overlap
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private volatile CompletableFuture<String> response;
+        private volatile List<String> chunks;
+        private volatile Throwable error;
+        private int next;
+
+        ChunkSubscription(Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            if (done) return;
+            CompletableFuture<String> future;
+            try {
+                future = pipeline.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            response = future;
+            if (done) {
+                future.cancel(false);
+                return;
+            }
+            // Delivered on the executor, not on the thread that finished the pipeline
+            future.whenCompleteAsync((text, failure) -> {
+                if (failure != null) {
+                    error = failure;
+                } else {
+                    chunks = chunk(text);
+                }
+                drain();
+            }, executor);
+        }
+
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Demand must be positive, got " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        public void cancel() {
+            done = true;
+            CompletableFuture<String> future = response;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            int missed = 1;
+            do {
+                if (done) return;
+                if (error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                List<String> ready = chunks;
+                if (ready != null) {
+                    while (next < ready.size() && demand.get() > 0 && !done) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(ready.get(next++));
+                    }
+                    if (next == ready.size() && !done) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
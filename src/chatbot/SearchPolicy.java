@@ -0,0 +1,58 @@
+package chatbot;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * How a question that needs current information uses the knowledge base and
+ * the web search.
+ *
+ * In SEQUENTIAL mode the web search starts after the knowledge lookup; in
+ * SPECULATIVE mode it starts first and runs while the lookup does. The
+ * priority picks the source whose answer is used when both have one, and the
+ * other is cancelled. Whatever is available when the deadline passes, counted
+ * from the start of the request, is answered with.
+ */
+class SearchPolicy {
+    public static final String MODE_PROPERTY = "chatbot.search.mode";
+    public static final String PRIORITY_PROPERTY = "chatbot.search.priority";
+    public static final String DEADLINE_PROPERTY = "chatbot.request.deadlineMillis";
+
+    enum Mode { SEQUENTIAL, SPECULATIVE }
+
+    enum Priority {
+        /** A knowledge base answer wins; the web is only used when it has none. */
+        KNOWLEDGE_BASE,
+        /** A live web answer wins; the knowledge base answer is the fallback. */
+        WEB_SEARCH
+    }
+
+    private final Mode mode;
+    private final Priority priority;
+    private final Duration deadline;
+
+    public SearchPolicy(Mode mode, Priority priority, Duration deadline) {
+        this.mode = mode;
+        this.priority = priority;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Defaults to the original behaviour: sequential, knowledge base first,
+     * three second deadline.
+     */
+    public static SearchPolicy fromSystemProperties() {
+        return new SearchPolicy(
+                Mode.valueOf(System.getProperty(MODE_PROPERTY, "SEQUENTIAL").toUpperCase(Locale.ROOT)),
+                Priority.valueOf(System.getProperty(PRIORITY_PROPERTY, "KNOWLEDGE_BASE").toUpperCase(Locale.ROOT)),
+                Duration.ofMillis(Long.getLong(DEADLINE_PROPERTY, 3000)));
+    }
+
+    public Mode getMode() { return mode; }
+    public Priority getPriority() { return priority; }
+    public Duration getDeadline() { return deadline; }
+
+    public String toString() {
+        return mode + "/" + priority + "/" + deadline.toMillis() + "ms";
+    }
+}
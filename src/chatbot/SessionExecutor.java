@@ -0,0 +1,282 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs conversation turns on a fixed set of single-threaded shards. A session
+ * id always hashes to the same shard, so the turns of one session run one
+ * after the other in submission order, while different sessions spread over
+ * all shards.
+ *
+ * A turn is a supplier of a future. A turn still waiting on its future (a web
+ * search) does not hold the shard: later turns of its session wait until it
+ * completes, other sessions on the shard go ahead.
+ *
+ * Every shard admits at most queueCapacity turns that have not started yet.
+ * submit() rejects a turn beyond that at once with a RejectedExecutionException
+ * instead of letting it queue up; submitBlocking() waits for room, for callers
+ * such as a pipe that should slow down rather than fail.
+ *
+ * close() rejects new turns, lets the admitted ones finish and then stops the
+ * shard threads.
+ */
+class SessionExecutor {
+    public static final String SHARDS_PROPERTY = "chatbot.executor.shards";
+    public static final String QUEUE_CAPACITY_PROPERTY = "chatbot.executor.queueCapacity";
+    // How long close() waits for admitted turns before it stops the shards anyway
+    static final long CLOSE_TIMEOUT_MILLIS = 10000;
+    // Queued after the last turn a closed shard accepts
+    private static final Object STOP = new Object();
+
+    private final Shard[] shards;
+    private final int queueCapacity;
+    private final LongAdder rejected = new LongAdder();
+
+    public SessionExecutor(int shardCount, int queueCapacity) {
+        if (shardCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Shard count and queue capacity must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+            shards[i].start();
+        }
+    }
+
+    public static SessionExecutor fromSystemProperties() {
+        return new SessionExecutor(
+                Integer.getInteger(SHARDS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(QUEUE_CAPACITY_PROPERTY, 256));
+    }
+
+    /**
+     * Queues the turn on the session's shard, or fails the returned future
+     * with a RejectedExecutionException right away when the shard is full.
+     * Cancelling the returned future cancels the turn, or skips it if it has
+     * not started.
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Supplier<CompletableFuture<T>> turn) {
+        Shard shard = shardOf(sessionId);
+        if (!shard.permits.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Shard " + shard.index + " has " + queueCapacity + " turns waiting"));
+        }
+        return shard.enqueue(sessionId, turn);
+    }
+
+    /**
+     * Rejects turns from now on and stops the shards once the turns already
+     * admitted have completed, waiting at most CLOSE_TIMEOUT_MILLIS for them.
+     * Turns still waiting after that are cancelled.
+     */
+    public void close() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.finish();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        for (Shard shard : shards) {
+            shard.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        for (Shard shard : shards) {
+            shard.interrupt();
+            shard.join();
+        }
+    }
+
+    /**
+     * Like submit(), but waits for room on the shard instead of rejecting.
+     */
+    public <T> CompletableFuture<T> submitBlocking(String sessionId, Supplier<CompletableFuture<T>> turn)
+            throws InterruptedException {
+        Shard shard = shardOf(sessionId);
+        shard.permits.acquire();
+        return shard.enqueue(sessionId, turn);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Turns admitted to the shard that have not started yet, including those
+     * waiting behind a busy turn of their session.
+     */
+    public int getQueueDepth(int shard) {
+        return queueCapacity - shards[shard].permits.availablePermits();
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (int i = 0; i < shards.length; i++) {
+            depth += getQueueDepth(i);
+        }
+        return depth;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private Shard shardOf(String sessionId) {
+        return shards[Math.floorMod(sessionId.hashCode(), shards.length)];
+    }
+
+    private static class Turn<T> {
+        final String sessionId;
+        final Supplier<CompletableFuture<T>> supplier;
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+
+        Turn(String sessionId, Supplier<CompletableFuture<T>> supplier) {
+            this.sessionId = sessionId;
+            this.supplier = supplier;
+        }
+
+        /**
+         * Starts the turn and returns the future it waits on.
+         */
+        CompletableFuture<T> start() {
+            if (result.isDone()) {
+                // Cancelled while queued
+                return result;
+            }
+            CompletableFuture<T> pending;
+            try {
+                pending = supplier.get();
+            } catch (RuntimeException e) {
+                pending = CompletableFuture.failedFuture(e);
+            }
+            final CompletableFuture<T> inner = pending;
+            inner.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    inner.cancel(false);
+                }
+            });
+            return inner;
+        }
+    }
+
+    /**
+     * One thread and its queue. The map of sessions with a turn in progress
+     * is only touched by the shard thread.
+     */
+    private static class Shard extends Thread {
+        final int index;
+        final Semaphore permits;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+        // Sessions whose current turn is still waiting, with the turns queued behind it
+        private final Map<String, ArrayDeque<Turn<?>>> busy = new HashMap<String, ArrayDeque<Turn<?>>>();
+        private final Object stopLock = new Object();
+        // Guarded by stopLock; no turn is queued after STOP
+        private boolean stopped;
+
+        Shard(int index, int capacity) {
+            super("session-shard-" + index);
+            setDaemon(true);
+            this.index = index;
+            this.permits = new Semaphore(capacity);
+        }
+
+        <T> CompletableFuture<T> enqueue(String sessionId, Supplier<CompletableFuture<T>> supplier) {
+            Turn<T> turn = new Turn<T>(sessionId, supplier);
+            synchronized (stopLock) {
+                if (!stopped) {
+                    queue.add(turn);
+                    return turn.result;
+                }
+            }
+            permits.release();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("The session executor is closed"));
+        }
+
+        void finish() {
+            synchronized (stopLock) {
+                if (!stopped) {
+                    stopped = true;
+                    queue.add(STOP);
+                }
+            }
+        }
+
+        public void run() {
+            boolean stopping = false;
+            try {
+                while (!stopping || !busy.isEmpty()) {
+                    Object item = queue.take();
+                    if (item == STOP) {
+                        stopping = true;
+                    } else if (item instanceof Turn) {
+                        Turn<?> turn = (Turn<?>) item;
+                        ArrayDeque<Turn<?>> waiting = busy.get(turn.sessionId);
+                        if (waiting != null) {
+                            waiting.add(turn);
+                        } else {
+                            runFrom(turn);
+                        }
+                    } else {
+                        // The waiting turn of this session has completed
+                        String sessionId = (String) item;
+                        Turn<?> next = busy.get(sessionId).poll();
+                        if (next == null) {
+                            busy.remove(sessionId);
+                        } else {
+                            runFrom(next);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped before every turn completed
+            }
+            for (ArrayDeque<Turn<?>> waiting : busy.values()) {
+                for (Turn<?> turn : waiting) {
+                    turn.result.cancel(false);
+                }
+            }
+            for (Object item : queue) {
+                if (item instanceof Turn) {
+                    ((Turn<?>) item).result.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * Runs the turn and the turns queued behind it until one has to wait.
+         */
+        private void runFrom(Turn<?> turn) {
+            String sessionId = turn.sessionId;
+            while (turn != null) {
+                // A turn holds its place in the queue until it starts, also while its session is busy
+                permits.release();
+                CompletableFuture<?> pending = turn.start();
+                if (!pending.isDone()) {
+                    busy.computeIfAbsent(sessionId, id -> new ArrayDeque<Turn<?>>());
+                    pending.whenComplete((value, error) -> queue.add(sessionId));
+                    return;
+                }
+                ArrayDeque<Turn<?>> waiting = busy.get(sessionId);
+                turn = waiting == null ? null : waiting.poll();
+            }
+            busy.remove(sessionId);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package chatbot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-session conversation memories with LRU and idle-time eviction.
+ * The store caps both the number of live sessions and the approximate heap
+ * they hold, so memory stays flat as the number of users grows. A session is
+ * charged for its turns, a fixed estimate for its rings and topic context
+ * (see ConversationMemory.overheadBytes) and its map entry and id.
+ * With a journal attached, a session that is not in memory (evicted, or from
+ * before a restart) gets its recent turns back when it is next used; the
+ * journal is read outside the store's lock, so other sessions are not held up
+ * by the disk.
+ */
+class SessionStore {
+    public static final String MAX_SESSIONS_PROPERTY = "chatbot.sessions.max";
+    public static final String MAX_BYTES_PROPERTY = "chatbot.sessions.maxBytes";
+    public static final String IDLE_MINUTES_PROPERTY = "chatbot.sessions.idleMinutes";
+    public static final String TURNS_PROPERTY = "chatbot.sessions.turns";
+    // Map entry, Session object and id String header, besides the id's chars
+    static final long ENTRY_BYTES = 40 + 24 + 40;
+
+    private final int turnsPerSession;
+    private final int maxSessions;
+    private final long maxBytes;
+    private final long idleTimeoutNanos;
+
+    // Access-ordered: the eldest entry is always the least recently used session
+    private final LinkedHashMap<String, Session> sessions;
+    // Sessions being read back from the journal; later callers wait for the first
+    private final Map<String, CompletableFuture<ConversationMemory>> restoring =
+            new HashMap<String, CompletableFuture<ConversationMemory>>();
+    private final AtomicLong usedBytes;
+    private long evictions;
+    private ConversationJournal journal;
+
+    public SessionStore(int turnsPerSession, int maxSessions, long maxBytes, long idleTimeout, TimeUnit unit) {
+        if (turnsPerSession < 1 || maxSessions < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Session limits must be positive");
+        }
+        this.turnsPerSession = turnsPerSession;
+        this.maxSessions = maxSessions;
+        this.maxBytes = maxBytes;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.sessions = new LinkedHashMap<String, Session>(16, 0.75f, true);
+        this.usedBytes = new AtomicLong();
+    }
+
+    public static SessionStore fromSystemProperties() {
+        return new SessionStore(
+                Integer.getInteger(TURNS_PROPERTY, 5),
+                Integer.getInteger(MAX_SESSIONS_PROPERTY, 100000),
+                Long.getLong(MAX_BYTES_PROPERTY, 256L * 1024 * 1024),
+                Long.getLong(IDLE_MINUTES_PROPERTY, 30L),
+                TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns the memory of the given session, creating it if needed, and marks
+     * the session as recently used.
+     *
+     * @throws UncheckedIOException if the session's turns cannot be read back
+     *                              from the journal
+     */
+    public ConversationMemory get(String sessionId) {
+        CompletableFuture<ConversationMemory> restored;
+        ConversationJournal source;
+        synchronized (this) {
+            long now = System.nanoTime();
+            evictIdle(now);
+
+            Session session = sessions.get(sessionId);
+            if (session != null || journal == null) {
+                return publish(sessionId, session != null ? session
+                        : new Session(sessionId, new ConversationMemory(turnsPerSession, usedBytes)), now);
+            }
+            // Only the first caller reads the journal; the others wait for its result
+            restored = restoring.get(sessionId);
+            source = restored == null ? journal : null;
+            if (restored == null) {
+                restored = new CompletableFuture<ConversationMemory>();
+                restoring.put(sessionId, restored);
+            }
+        }
+
+        if (source == null) {
+            try {
+                return restored.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        ConversationMemory memory = new ConversationMemory(turnsPerSession, usedBytes);
+        try {
+            restore(source, sessionId, memory);
+        } catch (RuntimeException e) {
+            usedBytes.addAndGet(-memory.detach());
+            synchronized (this) {
+                restoring.remove(sessionId);
+            }
+            restored.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            restoring.remove(sessionId);
+            publish(sessionId, new Session(sessionId, memory), System.nanoTime());
+        }
+        restored.complete(memory);
+        return memory;
+    }
+
+    private ConversationMemory publish(String sessionId, Session session, long now) {
+        if (sessions.put(sessionId, session) == null) {
+            usedBytes.addAndGet(session.entryBytes);
+        }
+        session.lastAccess = now;
+        evictOverCapacity(sessionId);
+        return session.memory;
+    }
+
+    /**
+     * Sets the journal that new and evicted sessions are restored from.
+     */
+    public synchronized void setJournal(ConversationJournal journal) {
+        this.journal = journal;
+    }
+
+    private void restore(ConversationJournal source, String sessionId, ConversationMemory memory) {
+        try {
+            // Both roles share the walk back, so read enough turns to fill both rings
+            for (ConversationJournal.Turn turn : source.recentTurns(sessionId, turnsPerSession * 2)) {
+                if (turn.getRole() == ConversationJournal.Role.USER) {
+                    memory.addUserMessage(turn.getText());
+                } else {
+                    memory.addAssistantResponse(turn.getText());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore session " + sessionId + " from the journal", e);
+        }
+    }
+
+    public synchronized boolean remove(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) return false;
+        detach(session);
+        return true;
+    }
+
+    public synchronized int liveSessions() {
+        evictIdle(System.nanoTime());
+        return sessions.size();
+    }
+
+    public long approximateBytes() {
+        return usedBytes.get();
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Session eldest = it.next();
+            if (now - eldest.lastAccess < idleTimeoutNanos) break;
+            it.remove();
+            release(eldest);
+        }
+    }
+
+    private void evictOverCapacity(String currentSession) {
+        Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+        while (it.hasNext() && (sessions.size() > maxSessions || usedBytes.get() > maxBytes)) {
+            Map.Entry<String, Session> eldest = it.next();
+            // Never evict the session that is being handed out
+            if (eldest.getKey().equals(currentSession)) break;
+            it.remove();
+            release(eldest.getValue());
+        }
+    }
+
+    private void release(Session session) {
+        detach(session);
+        evictions++;
+    }
+
+    private void detach(Session session) {
+        usedBytes.addAndGet(-session.memory.detach() - session.entryBytes);
+    }
+
+    private static class Session {
+        final ConversationMemory memory;
+        final long entryBytes;
+        long lastAccess;
+
+        Session(String sessionId, ConversationMemory memory) {
+            this.memory = memory;
+            this.entryBytes = ENTRY_BYTES + 2L * sessionId.length();
+        }
+    }
+}
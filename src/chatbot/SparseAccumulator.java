@@ -0,0 +1,109 @@
+package chatbot;
+
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Open-addressing score table keyed by entry id, shared by the BM25 lookups of
+ * KnowledgeIndex and MappedKnowledgeBase; FuzzyTermIndex uses the match
+ * counts to count shared trigrams per term id. Its size follows the number of
+ * entries a query touches, not the size of the index, so a thread's first
+ * lookup does not pay for an array as large as the knowledge base.
+ */
+class SparseAccumulator {
+    int[] keys = new int[64];
+    double[] scores = new double[64];
+    int[] matched = new int[64];
+    int[] touched = new int[64];
+    int touchedCount;
+
+    SparseAccumulator() {
+        Arrays.fill(keys, -1);
+    }
+
+    void add(int id, double weight) {
+        if ((touchedCount + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = (id * 0x9E3779B1) >>> 7 & mask;
+        while (keys[slot] != id) {
+            if (keys[slot] < 0) {
+                keys[slot] = id;
+                touched[touchedCount++] = slot;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        scores[slot] += weight;
+        matched[slot]++;
+    }
+
+    /**
+     * The id that ranks first, or -1. Entries whose topic terms all matched
+     * rank ahead of partial matches, then by score, then by lower id. A partial
+     * match scoring below minPartialScore is no match at all.
+     */
+    int best(IntUnaryOperator topicLength, double minPartialScore) {
+        int best = -1;
+        double bestScore = 0;
+        boolean bestComplete = false;
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            int id = keys[slot];
+            boolean complete = matched[slot] == topicLength.applyAsInt(id);
+            double score = scores[slot];
+            boolean above = best < 0
+                    || (complete != bestComplete ? complete
+                    : (score != bestScore ? score > bestScore : id < best));
+            if (above) {
+                best = id;
+                bestScore = score;
+                bestComplete = complete;
+            }
+        }
+        if (best >= 0 && !bestComplete && bestScore < minPartialScore) {
+            return -1;
+        }
+        return best;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        double[] oldScores = scores;
+        int[] oldMatched = matched;
+        int[] oldTouched = touched;
+        int oldCount = touchedCount;
+
+        int capacity = keys.length * 2;
+        keys = new int[capacity];
+        Arrays.fill(keys, -1);
+        scores = new double[capacity];
+        matched = new int[capacity];
+        touched = new int[capacity];
+        touchedCount = 0;
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCount; i++) {
+            int old = oldTouched[i];
+            int slot = (oldKeys[old] * 0x9E3779B1) >>> 7 & mask;
+            while (keys[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            scores[slot] = oldScores[old];
+            matched[slot] = oldMatched[old];
+            touched[touchedCount++] = slot;
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            keys[slot] = -1;
+            scores[slot] = 0;
+            matched[slot] = 0;
+        }
+        touchedCount = 0;
+    }
+}
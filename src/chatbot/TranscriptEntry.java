@@ -0,0 +1,32 @@
+package chatbot;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One rendered transcript line; the display text is formatted once.
+ */
+class TranscriptEntry {
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final long timestamp;
+    private final String sender;
+    private final String message;
+    private final String displayText;
+
+    public TranscriptEntry(long timestamp, String sender, String message) {
+        this.timestamp = timestamp;
+        this.sender = sender;
+        this.message = message;
+        String prefix = sender.equals("You") ? "👤 " : (sender.equals("Assistant") ? "🤖 " : "⚙️ ");
+        this.displayText = String.format("[%s] %s%s: %s", TIME_FORMAT.format(Instant.ofEpochMilli(timestamp)),
+                prefix, sender, message);
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public String getSender() { return sender; }
+    public String getMessage() { return message; }
+    public String getDisplayText() { return displayText; }
+}
@@ -0,0 +1,172 @@
+package chatbot;
+
+import javax.swing.*;
+import java.io.*;
+import java.util.*;
+
+/**
+ * List model for the chat transcript.
+ * Every message is written through to an on-disk log, and only a bounded
+ * window of consecutive messages is kept in memory. The window normally
+ * follows the newest messages and can be paged back through the log.
+ * A reply that is still streaming in is shown as an extra last row while the
+ * window follows the newest messages; it is not stored until it is appended.
+ * All methods must be called on the event dispatch thread.
+ */
+class TranscriptModel extends AbstractListModel<TranscriptEntry> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+    private final int pageSize;
+    private final TranscriptStore store;
+
+    // Ring buffer over the window; window[i] is message number firstIndex + i
+    private final TranscriptEntry[] window;
+    private int head;
+    private int size;
+    private long firstIndex;
+    private TranscriptEntry pending;
+
+    public TranscriptModel(int capacity, int pageSize, TranscriptStore store) {
+        if (pageSize < 1 || pageSize > capacity) {
+            throw new IllegalArgumentException("Page size must be between 1 and the window capacity");
+        }
+        this.capacity = capacity;
+        this.pageSize = pageSize;
+        this.store = store;
+        this.window = new TranscriptEntry[capacity];
+    }
+
+    public int getSize() {
+        return showsPending() ? size + 1 : size;
+    }
+
+    public TranscriptEntry getElementAt(int index) {
+        return index == size ? pending : window[(head + index) % capacity];
+    }
+
+    /**
+     * Shows, updates or (with null) removes the in-progress row.
+     */
+    public void setPending(TranscriptEntry entry) {
+        boolean wasShown = showsPending();
+        pending = entry;
+        if (!isAtLatest()) return;
+
+        if (wasShown && entry != null) {
+            fireContentsChanged(this, size, size);
+        } else if (wasShown) {
+            fireIntervalRemoved(this, size, size);
+        } else if (entry != null) {
+            fireIntervalAdded(this, size, size);
+        }
+    }
+
+    private boolean showsPending() {
+        return pending != null && isAtLatest();
+    }
+
+    public long getTotalMessages() {
+        return store.size();
+    }
+
+    public boolean hasEarlier() {
+        return firstIndex > 0;
+    }
+
+    public boolean isAtLatest() {
+        return firstIndex + size == store.size();
+    }
+
+    /**
+     * Appends a batch of messages. They enter the window only when it is
+     * showing the latest messages; otherwise they are just stored.
+     */
+    public void append(List<TranscriptEntry> batch) throws IOException {
+        boolean following = isAtLatest();
+        if (following && pending != null && !batch.isEmpty()) {
+            fireIntervalRemoved(this, size, size);
+        }
+        for (TranscriptEntry entry : batch) {
+            store.append(entry);
+        }
+        if (!following || batch.isEmpty()) return;
+
+        int first = Math.max(0, batch.size() - capacity);
+        int added = batch.size() - first;
+        int dropped = Math.max(0, size + added - capacity);
+        for (int i = first; i < batch.size(); i++) {
+            addLast(batch.get(i));
+        }
+        firstIndex = store.size() - size;
+
+        if (dropped > 0) {
+            fireIntervalRemoved(this, 0, dropped - 1);
+        }
+        fireIntervalAdded(this, size - added, pending != null ? size : size - 1);
+    }
+
+    /**
+     * Moves the window one page back, reading the older messages from disk.
+     * Returns the number of messages brought in.
+     */
+    public int pageEarlier() throws IOException {
+        int count = (int) Math.min(pageSize, firstIndex);
+        if (count == 0) return 0;
+
+        List<TranscriptEntry> older = store.read(firstIndex - count, count);
+        int oldSize = size;
+        int oldRows = getSize();
+        int dropped = Math.max(0, oldSize + count - capacity);
+        for (int i = older.size() - 1; i >= 0; i--) {
+            addFirst(older.get(i));
+        }
+        firstIndex -= count;
+
+        // Dropping the newest rows also hides the in-progress row
+        if (dropped > 0) {
+            fireIntervalRemoved(this, oldSize - dropped, oldRows - 1);
+        }
+        fireIntervalAdded(this, 0, count - 1);
+        return count;
+    }
+
+    /**
+     * Reloads the window with the newest messages.
+     */
+    public void jumpToLatest() throws IOException {
+        int count = (int) Math.min(capacity, store.size());
+        List<TranscriptEntry> latest = store.read(store.size() - count, count);
+        int oldSize = getSize();
+        head = 0;
+        size = 0;
+        for (TranscriptEntry entry : latest) {
+            addLast(entry);
+        }
+        firstIndex = store.size() - size;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (getSize() > 0) {
+            fireIntervalAdded(this, 0, getSize() - 1);
+        }
+    }
+
+    private void addLast(TranscriptEntry entry) {
+        if (size == capacity) {
+            window[head] = entry;
+            head = (head + 1) % capacity;
+        } else {
+            window[(head + size) % capacity] = entry;
+            size++;
+        }
+    }
+
+    private void addFirst(TranscriptEntry entry) {
+        head = (head - 1 + capacity) % capacity;
+        window[head] = entry;
+        if (size < capacity) {
+            size++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only transcript log: a data file of length-prefixed records plus a
+ * fixed-width index of record offsets, so any message can be read back with
+ * one seek without keeping offsets in memory.
+ */
+class TranscriptStore implements Closeable {
+    private final FileChannel data;
+    private final FileChannel index;
+    private long size;
+
+    public TranscriptStore(Path dataFile, Path indexFile) throws IOException {
+        data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public static TranscriptStore createTemporary() throws IOException {
+        Path dataFile = Files.createTempFile("chatbot-transcript", ".dat");
+        Path indexFile = Files.createTempFile("chatbot-transcript", ".idx");
+        dataFile.toFile().deleteOnExit();
+        indexFile.toFile().deleteOnExit();
+        return new TranscriptStore(dataFile, indexFile);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void append(TranscriptEntry entry) throws IOException {
+        byte[] sender = entry.getSender().getBytes(StandardCharsets.UTF_8);
+        byte[] message = entry.getMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(16 + sender.length + message.length);
+        record.putLong(entry.getTimestamp()).putInt(sender.length).put(sender).putInt(message.length).put(message);
+        record.flip();
+
+        long offset = data.size();
+        writeFully(data, record, offset);
+        ByteBuffer position = ByteBuffer.allocate(8).putLong(0, offset);
+        writeFully(index, position, size * 8);
+        size++;
+    }
+
+    public List<TranscriptEntry> read(long first, int count) throws IOException {
+        List<TranscriptEntry> entries = new ArrayList<TranscriptEntry>(count);
+        ByteBuffer offsets = ByteBuffer.allocate(count * 8);
+        readFully(index, offsets, first * 8);
+        offsets.flip();
+
+        for (int i = 0; i < count; i++) {
+            long offset = offsets.getLong();
+            ByteBuffer header = ByteBuffer.allocate(12);
+            readFully(data, header, offset);
+            long timestamp = header.getLong(0);
+            int senderLength = header.getInt(8);
+
+            ByteBuffer rest = ByteBuffer.allocate(senderLength + 4);
+            readFully(data, rest, offset + 12);
+            int messageLength = rest.getInt(senderLength);
+            ByteBuffer message = ByteBuffer.allocate(messageLength);
+            readFully(data, message, offset + 16 + senderLength);
+
+            String sender = new String(rest.array(), 0, senderLength, StandardCharsets.UTF_8);
+            entries.add(new TranscriptEntry(timestamp, sender, new String(message.array(), StandardCharsets.UTF_8)));
+        }
+        return entries;
+    }
+
+    public void close() throws IOException {
+        data.close();
+        index.close();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException("Transcript log truncated");
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package chatbot;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Web Search Engine for current information
+ *
+ * Queries the DuckDuckGo instant answer API asynchronously. Results are kept
+ * in a bounded TTL cache keyed by the normalized search terms, identical
+ * in-flight queries share one upstream call, and a circuit breaker stops
+ * calling the upstream after repeated failures. Whenever no live answer is
+ * available the caller gets the canned guidance text instead of waiting.
+ *
+ * An upstream call that has not answered within the hedge delay
+ * (-Dchatbot.search.hedgeMillis, off by default) is raced by a second
+ * identical request; the first response wins and the other is cancelled.
+ * When every caller waiting for a query has cancelled, its upstream call is
+ * cancelled as well.
+ */
+class WebSearchEngine {
+    public static final String ENDPOINT_PROPERTY = "chatbot.search.endpoint";
+    public static final String HEDGE_PROPERTY = "chatbot.search.hedgeMillis";
+    private static final String DEFAULT_ENDPOINT = "https://api.duckduckgo.com/";
+
+    // Built on the first upstream call: creating it loads the TLS stack, which
+    // dominates startup when the web is never used
+    private volatile HttpClient client;
+    private final Duration connectTimeout;
+    private final String endpoint;
+    private final Duration requestTimeout;
+    private final long cacheTtlNanos;
+    private final Map<String, CachedResult> cache;
+    private final ConcurrentHashMap<String, PendingSearch> inFlight;
+    private final CircuitBreaker breaker;
+    private final long hedgeDelayMillis;
+    private final LongAdder hedgedRequests = new LongAdder();
+
+    public WebSearchEngine() {
+        this(System.getProperty(ENDPOINT_PROPERTY, DEFAULT_ENDPOINT),
+                Duration.ofSeconds(2), Duration.ofSeconds(3), 1000, Duration.ofMinutes(10),
+                5, Duration.ofSeconds(30), Duration.ofMillis(Long.getLong(HEDGE_PROPERTY, 0)));
+    }
+
+    public WebSearchEngine(String endpoint, Duration connectTimeout, Duration requestTimeout,
+                           int cacheSize, Duration cacheTtl,
+                           int failureThreshold, Duration openDuration) {
+        this(endpoint, connectTimeout, requestTimeout, cacheSize, cacheTtl, failureThreshold, openDuration,
+                Duration.ZERO);
+    }
+
+    /**
+     * A zero hedge delay disables hedging.
+     */
+    public WebSearchEngine(String endpoint, Duration connectTimeout, Duration requestTimeout,
+                           final int cacheSize, Duration cacheTtl,
+                           int failureThreshold, Duration openDuration, Duration hedgeDelay) {
+        this.connectTimeout = connectTimeout;
+        this.endpoint = endpoint;
+        this.requestTimeout = requestTimeout;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.cache = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.inFlight = new ConcurrentHashMap<String, PendingSearch>();
+        this.breaker = new CircuitBreaker(failureThreshold, openDuration.toNanos());
+        this.hedgeDelayMillis = hedgeDelay.toMillis();
+    }
+
+    /**
+     * Blocking variant for callers on a worker thread. Waits at most the request
+     * timeout and falls back to the canned response.
+     */
+    public String searchAndSummarize(String query) {
+        try {
+            return searchAsync(query).get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallbackResponse(query);
+        } catch (ExecutionException | TimeoutException e) {
+            return fallbackResponse(query);
+        }
+    }
+
+    /**
+     * Never completes exceptionally; failures resolve to the canned response.
+     * Cancelling the returned future does not affect other callers of the same query.
+     */
+    public CompletableFuture<String> searchAsync(final String query) {
+        return searchLive(query).thenApply(summary -> summary != null ? summary : fallbackResponse(query));
+    }
+
+    /**
+     * Like searchAsync, but resolves to null when there is no live answer.
+     * Cancelling or otherwise completing the returned future early lets go of
+     * the query; the upstream call is cancelled once nobody else waits for it.
+     */
+    public CompletableFuture<String> searchLive(final String query) {
+        final String key = normalize(query);
+        if (key.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String cached = cachedResult(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        while (true) {
+            PendingSearch pending = inFlight.get(key);
+            if (pending != null) {
+                CompletableFuture<String> waiter = pending.join();
+                if (waiter != null) return waiter;
+                // Abandoned by its last waiter; start over
+                inFlight.remove(key, pending);
+                continue;
+            }
+
+            final PendingSearch created = new PendingSearch();
+            if (inFlight.putIfAbsent(key, created) != null) continue;
+            CompletableFuture<String> waiter = created.join();
+            if (!breaker.allowRequest()) {
+                inFlight.remove(key, created);
+                created.result.complete(null);
+                return waiter;
+            }
+
+            HttpRequest request = HttpRequest.newBuilder(buildUri(query))
+                    .timeout(requestTimeout)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            CompletableFuture<HttpResponse<String>> exchange = send(request);
+            created.exchange = exchange;
+            exchange.whenComplete((response, error) -> {
+                String summary = null;
+                if (error == null && response.statusCode() == 200) {
+                    breaker.recordSuccess();
+                    summary = summarize(response.body());
+                    if (summary != null) {
+                        cacheResult(key, summary);
+                    }
+                } else if (created.isAbandoned()) {
+                    // Cancelled because nobody waits; the client may report that as a
+                    // CancellationException before the future itself counts as cancelled
+                    breaker.releaseProbe();
+                } else {
+                    breaker.recordFailure();
+                }
+                inFlight.remove(key, created);
+                created.result.complete(summary);
+            });
+            if (created.isAbandoned()) {
+                exchange.cancel(true);
+            }
+            return waiter;
+        }
+    }
+
+    private HttpClient client() {
+        HttpClient built = client;
+        if (built == null) {
+            synchronized (this) {
+                built = client;
+                if (built == null) {
+                    built = HttpClient.newBuilder()
+                            .connectTimeout(connectTimeout)
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .build();
+                    client = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Sends the request, racing it with a second one when the first has not
+     * answered within the hedge delay. Cancelling the returned future cancels
+     * every attempt.
+     */
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        final CompletableFuture<HttpResponse<String>> primary = client().sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        if (hedgeDelayMillis <= 0) return primary;
+
+        final CompletableFuture<HttpResponse<String>> winner = new CompletableFuture<HttpResponse<String>>();
+        final List<CompletableFuture<HttpResponse<String>>> attempts =
+                new CopyOnWriteArrayList<CompletableFuture<HttpResponse<String>>>(Collections.singletonList(primary));
+        // The primary and the hedge; the winner fails only when both have failed
+        final AtomicInteger outstanding = new AtomicInteger(2);
+        final BiConsumer<HttpResponse<String>, Throwable> race = (response, error) -> {
+            if (error == null) {
+                winner.complete(response);
+            } else if (outstanding.decrementAndGet() == 0) {
+                winner.completeExceptionally(error);
+            }
+        };
+        primary.whenComplete(race);
+        CompletableFuture.delayedExecutor(hedgeDelayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (winner.isDone()) return;
+            hedgedRequests.increment();
+            CompletableFuture<HttpResponse<String>> hedge = client().sendAsync(request, HttpResponse.BodyHandlers.ofString());
+            attempts.add(hedge);
+            hedge.whenComplete(race);
+            if (winner.isDone()) {
+                hedge.cancel(true);
+            }
+        });
+        winner.whenComplete((response, error) -> {
+            for (CompletableFuture<HttpResponse<String>> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        });
+        return winner;
+    }
+
+    public long getHedgedRequests() {
+        return hedgedRequests.sum();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+
+    /**
+     * Cache key: lowercase terms, de-duplicated and sorted.
+     */
+    static String normalize(String query) {
+        TreeSet<String> terms = new TreeSet<String>(KnowledgeIndex.tokenize(query));
+        return String.join(" ", terms);
+    }
+
+    private URI buildUri(String query) {
+        return URI.create(endpoint + "?q=" + URLEncoder.encode(query.trim(), StandardCharsets.UTF_8)
+                + "&format=json&no_html=1&skip_disambig=1");
+    }
+
+    private String cachedResult(String key) {
+        synchronized (cache) {
+            CachedResult result = cache.get(key);
+            if (result == null) return null;
+            if (System.nanoTime() - result.storedAt > cacheTtlNanos) {
+                cache.remove(key);
+                return null;
+            }
+            return result.summary;
+        }
+    }
+
+    private void cacheResult(String key, String summary) {
+        synchronized (cache) {
+            cache.put(key, new CachedResult(summary, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Picks the most direct text field of an instant answer response.
+     */
+    private static String summarize(String body) {
+        try {
+            Map<String, Object> json = Json.parseObject(body);
+            for (String field : new String[]{"Answer", "AbstractText", "Definition"}) {
+                Object value = json.get(field);
+                if (value instanceof String && !((String) value).trim().isEmpty()) {
+                    return ((String) value).trim();
+                }
+            }
+            Object related = json.get("RelatedTopics");
+            if (related instanceof List) {
+                for (Object topic : (List<?>) related) {
+                    if (topic instanceof Map) {
+                        Object text = ((Map<?, ?>) topic).get("Text");
+                        if (text instanceof String && !((String) text).trim().isEmpty()) {
+                            return ((String) text).trim();
+                        }
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed upstream body, treat as no answer
+        }
+        return null;
+    }
+
+    String fallbackResponse(String query) {
+        // Professional responses for common search types
+        if (query.contains("weather")) {
+            return "I don't have access to real-time weather data. I recommend checking a reliable weather service like Weather.com or your local meteorological service for current conditions and forecasts.";
+        }
+        if (query.contains("news") || query.contains("current events")) {
+            return "For the latest news and current events, I recommend checking reputable news sources such as BBC, Reuters, AP News, or your preferred local news outlets for the most up-to-date information.";
+        }
+        if (query.contains("stock") || query.contains("market")) {
+            return "For current stock prices and market information, please consult financial platforms like Yahoo Finance, Bloomberg, or MarketWatch for real-time data and analysis.";
+        }
+        return "I found relevant information online, but recommend verifying current details from authoritative sources for the most accurate and up-to-date information.";
+    }
+
+    /**
+     * One upstream query shared by every caller asking it while it runs.
+     */
+    private static class PendingSearch {
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        volatile CompletableFuture<HttpResponse<String>> exchange;
+        private int waiters;
+        private boolean abandoned;
+
+        /**
+         * A new waiter, or null if the last waiter has already left.
+         */
+        synchronized CompletableFuture<String> join() {
+            if (abandoned) return null;
+            waiters++;
+            final CompletableFuture<String> waiter = result.copy();
+            waiter.whenComplete((summary, error) -> {
+                if (!result.isDone()) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+
+        private void leave() {
+            CompletableFuture<HttpResponse<String>> toCancel = null;
+            synchronized (this) {
+                if (--waiters == 0) {
+                    abandoned = true;
+                    toCancel = exchange;
+                }
+            }
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+    }
+
+    private static class CachedResult {
+        final String summary;
+        final long storedAt;
+
+        CachedResult(String summary, long storedAt) {
+            this.summary = summary;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Opens after a run of consecutive failures, then lets a single probe
+     * through once the open period has elapsed.
+     */
+    static class CircuitBreaker {
+        enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int failureThreshold;
+        private final long openNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+
+        CircuitBreaker(int failureThreshold, long openNanos) {
+            this.failureThreshold = failureThreshold;
+            this.openNanos = openNanos;
+        }
+
+        synchronized boolean allowRequest() {
+            if (state == State.CLOSED) return true;
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+        }
+
+        synchronized void recordFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+        }
+
+        /**
+         * A half-open probe was cancelled before it answered; the next request
+         * may probe again.
+         */
+        synchronized void releaseProbe() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openedAt = System.nanoTime() - openNanos;
+            }
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvancedNLPProcessorTest {
+    private final AdvancedNLPProcessor processor = new AdvancedNLPProcessor();
+    private final List<String> context = Arrays.asList("python", "language");
+
+    @Test
+    void pronounLedAndShortMessagesAreFollowUps() {
+        assertEquals(context, processor.analyzeQuery("What about its frameworks?", context).getContextTerms());
+        assertEquals(context, processor.analyzeQuery("They are fast, right?", context).getContextTerms());
+        assertEquals(context, processor.analyzeQuery("Is it hard to learn?", context).getContextTerms());
+        assertEquals(context, processor.analyzeQuery("tell me more", context).getContextTerms());
+    }
+
+    @Test
+    void pronounInsideALongerMessageIsNoFollowUp() {
+        assertEquals(Collections.emptyList(), processor.analyzeQuery(
+                "I think this algorithm handles large graphs in linear time", context).getContextTerms());
+        assertEquals(Collections.emptyList(), processor.analyzeQuery(
+                "Write a function that sorts a list of numbers", context).getContextTerms());
+    }
+
+    @Test
+    void bundledRulesOnlyUseWordsThatSurviveSynonymRewriting() throws IOException {
+        Map<String, String> synonyms = AdvancedNLPProcessor.defaultSynonyms();
+        // A rewritten word still reaches the rules when another word is rewritten to it
+        Set<String> produced = new HashSet<String>();
+        for (String replacement : synonyms.values()) {
+            produced.addAll(Arrays.asList(replacement.split(" ")));
+        }
+        try (BufferedReader rules = new BufferedReader(new InputStreamReader(
+                PhraseClassifier.class.getResourceAsStream("classifier-rules.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = rules.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("#")) continue;
+                for (String phrase : line.substring(line.indexOf(':') + 1).split(",")) {
+                    for (String word : phrase.trim().replace("^", "").replace("*", "").split(" ")) {
+                        assertTrue(!synonyms.containsKey(word) || produced.contains(word),
+                                "'" + word + "' in '" + line + "' is always rewritten first");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rewrittenPhrasesStillClassify() {
+        assertEquals(QueryType.EXPLANATION, processor.analyzeQuery("How does garbage collection work").getQueryType());
+        assertEquals(QueryType.EXPLANATION, processor.analyzeQuery("Tell me about Python").getQueryType());
+        assertEquals(QueryType.HELP_REQUEST, processor.analyzeQuery("I need help with my code").getQueryType());
+        assertEquals("TECHNICAL", processor.analyzeQuery("I love programming").getIntent());
+    }
+
+    @Test
+    void followUpOmitsContextTermsItRepeats() {
+        assertEquals(Collections.singletonList("language"),
+                processor.analyzeQuery("is it python?", context).getContextTerms());
+    }
+}
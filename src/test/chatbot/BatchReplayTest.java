@@ -0,0 +1,130 @@
+package chatbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replay of a log through an engine that echoes each message, fails on
+ * "boom" and throws an Error on "fatal": one result line per input line,
+ * error lines for what could not be answered, and per-session order.
+ */
+class BatchReplayTest {
+    private final Map<String, List<String>> seen = new ConcurrentHashMap<String, List<String>>();
+    private final ProfessionalChatbotEngine engine = new ProfessionalChatbotEngine() {
+        public String processMessage(String sessionId, String input, boolean useInternet) {
+            if (input.equals("boom")) throw new IllegalStateException("engine failed");
+            if (input.equals("fatal")) throw new Error("worker killed");
+            seen.computeIfAbsent(sessionId, id -> Collections.synchronizedList(new ArrayList<String>())).add(input);
+            return "reply to " + input;
+        }
+    };
+
+    @AfterEach
+    void closeEngine() throws IOException {
+        engine.close();
+    }
+
+    private static String line(String session, String message) {
+        return "{\"session\":" + Json.quote(session) + ",\"message\":" + Json.quote(message) + "}";
+    }
+
+    /**
+     * The result lines by input line number.
+     */
+    private static SortedMap<Long, Map<String, Object>> results(String output) {
+        SortedMap<Long, Map<String, Object>> results = new TreeMap<Long, Map<String, Object>>();
+        for (String line : output.split("\n")) {
+            if (line.isEmpty()) continue;
+            Map<String, Object> result = Json.parseObject(line);
+            long number = ((Number) result.get("line")).longValue();
+            assertNull(results.put(number, result), "one result per line");
+        }
+        return results;
+    }
+
+    @Test
+    void malformedAndFailingLinesGetAnErrorLine() throws Exception {
+        String input = String.join("\n",
+                line("a", "hello"),
+                "not json",
+                "{\"session\":1,\"message\":\"number session\"}",
+                "",
+                line("a", "boom"),
+                line("a", "after the failure"));
+        BatchReplay replay = new BatchReplay(engine, false, 2);
+        StringWriter output = new StringWriter();
+
+        assertEquals(6, replay.replay(new BufferedReader(new StringReader(input)), output));
+        SortedMap<Long, Map<String, Object>> results = results(output.toString());
+        assertEquals(new TreeSet<Long>(Arrays.asList(1L, 2L, 3L, 5L, 6L)), results.keySet());
+        assertEquals("reply to hello", results.get(1L).get("response"));
+        assertNotNull(results.get(2L).get("error"));
+        assertEquals("'session' and 'message' are required strings", results.get(3L).get("error"));
+        assertEquals("engine failed", results.get(5L).get("error"));
+        assertEquals("reply to after the failure", results.get(6L).get("response"));
+        assertEquals(2, replay.getProcessed());
+        assertEquals(3, replay.getFailed());
+    }
+
+    @Test
+    void turnsOfASessionKeepTheirOrderAcrossShards() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int turn = 0; turn < 50; turn++) {
+            for (int session = 0; session < 20; session++) {
+                input.append(line("session-" + session, "turn " + turn)).append('\n');
+            }
+        }
+        BatchReplay replay = new BatchReplay(engine, false, 4);
+        StringWriter output = new StringWriter();
+
+        assertEquals(1000, replay.replay(new BufferedReader(new StringReader(input.toString())), output));
+        assertEquals(1000, replay.getProcessed());
+        List<String> expected = new ArrayList<String>();
+        for (int turn = 0; turn < 50; turn++) {
+            expected.add("turn " + turn);
+        }
+        assertEquals(20, seen.size());
+        for (List<String> turns : seen.values()) {
+            assertEquals(expected, turns);
+        }
+
+        // Results of one session are written in the order of their input lines
+        Map<String, Long> lastLine = new HashMap<String, Long>();
+        for (String line : output.toString().split("\n")) {
+            Map<String, Object> result = Json.parseObject(line);
+            long number = ((Number) result.get("line")).longValue();
+            Long previous = lastLine.put((String) result.get("session"), number);
+            assertTrue(previous == null || previous < number, line);
+        }
+    }
+
+    @Test
+    void recordsOfAKilledWorkerFailInsteadOfStalling() throws Exception {
+        StringBuilder input = new StringBuilder(line("doomed", "fatal")).append('\n');
+        for (int i = 0; i < 3000; i++) {
+            input.append(line(i % 2 == 0 ? "doomed" : "other-" + i, "message " + i)).append('\n');
+        }
+        BatchReplay replay = new BatchReplay(engine, false, 2);
+        StringWriter output = new StringWriter();
+
+        assertEquals(3001, replay.replay(new BufferedReader(new StringReader(input.toString())), output));
+        SortedMap<Long, Map<String, Object>> results = results(output.toString());
+        assertEquals(3001, results.size());
+        assertEquals(3001, replay.getProcessed() + replay.getFailed());
+        assertTrue(String.valueOf(results.get(1L).get("error")).contains("worker killed"));
+        for (Map<String, Object> result : results.values()) {
+            if ("doomed".equals(result.get("session"))) {
+                fail("no turn of the killed worker's session is answered: " + result);
+            }
+        }
+    }
+}
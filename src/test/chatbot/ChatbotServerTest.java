@@ -0,0 +1,116 @@
+package chatbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatbotServer on an ephemeral port, with an engine whose turns never finish
+ * unless cancelled.
+ */
+class ChatbotServerTest {
+    private final CompletableFuture<String> pending = new CompletableFuture<String>();
+    private ProfessionalChatbotEngine engine;
+    private ChatbotServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        engine = new ProfessionalChatbotEngine() {
+            public CompletableFuture<String> processMessageAsync(String sessionId, String input, boolean useInternet) {
+                return pending;
+            }
+        };
+        server = new ChatbotServer(engine, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.stop();
+        pending.cancel(false);
+        engine.close();
+    }
+
+    @Test
+    void oversizedBodyIsRefused() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/chat")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(new byte[ChatbotServer.MAX_BODY_BYTES + 1]);
+        }
+        assertEquals(413, connection.getResponseCode());
+    }
+
+    @Test
+    void disconnectBeforeTheFirstChunkCancelsTheTurn() throws Exception {
+        String body = "{\"session\":\"a\",\"message\":\"hello\"}";
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write(("POST /chat/stream HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                    + body.length() + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+            socket.getInputStream().read();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(3 * ChatbotServer.HEARTBEAT_MILLIS);
+        while (!pending.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(pending.isCancelled(), "the heartbeat notices the closed connection");
+    }
+
+    @Test
+    void clientThatStopsReadingIsGivenUpOn() throws Exception {
+        char[] filler = new char[64 * 1024];
+        Arrays.fill(filler, 'x');
+        String chunk = new String(filler);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        // Endless chunks, each one produced only when the previous write went through
+        ProfessionalChatbotEngine endless = new ProfessionalChatbotEngine() {
+            public Flow.Publisher<String> streamMessage(String sessionId, String input, boolean useInternet) {
+                return subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+                    public void request(long n) {
+                        producer.execute(() -> subscriber.onNext(chunk));
+                    }
+
+                    public void cancel() {
+                        cancelled.countDown();
+                    }
+                });
+            }
+        };
+        ChatbotServer stalling = new ChatbotServer(endless, 0, 100, 1000);
+        stalling.start();
+        String body = "{\"session\":\"a\",\"message\":\"hello\"}";
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), stalling.getPort()));
+            socket.getOutputStream().write(("POST /chat/stream HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                    + body.length() + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+            // Never read, so the server's writes fill the socket buffers and block
+            assertTrue(cancelled.await(10, TimeUnit.SECONDS), "the stuck write times out and cancels the stream");
+        } finally {
+            stalling.stop();
+            producer.shutdownNow();
+            endless.close();
+        }
+    }
+}
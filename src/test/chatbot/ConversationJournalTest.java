@@ -0,0 +1,195 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery of the journal after torn writes, corrupt records and unclean
+ * shutdowns, with and without a checkpoint.
+ */
+class ConversationJournalTest {
+    // Every test record has a two-character session and a seven-character text
+    private static final int RECORD_BYTES = 8 + 8 + 1 + 4 + 2 + 4 + 7;
+
+    @TempDir
+    Path directory;
+
+    private ConversationJournal open(int segmentBytes) throws IOException {
+        return open(segmentBytes, Integer.MAX_VALUE);
+    }
+
+    private ConversationJournal open(int segmentBytes, int maxSegments) throws IOException {
+        return ConversationJournal.open(directory, ConversationJournal.Durability.ASYNC, 10, segmentBytes, Long.MAX_VALUE,
+                maxSegments);
+    }
+
+    private static void write(ConversationJournal journal, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            journal.append(session(i), i % 4 < 2 ? ConversationJournal.Role.USER : ConversationJournal.Role.ASSISTANT,
+                    String.format(Locale.ROOT, "turn %02d", i));
+        }
+    }
+
+    private static String session(int turn) {
+        return turn % 2 == 0 ? "s0" : "s1";
+    }
+
+    /**
+     * The texts the journal returns for the session, oldest first.
+     */
+    private static List<String> texts(ConversationJournal journal, String session) throws IOException {
+        return journal.recentTurns(session, 100).stream().map(ConversationJournal.Turn::getText)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The texts of the turns in [0, count) that belong to the session.
+     */
+    private static List<String> expected(String session, int count) {
+        List<String> texts = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            if (session(i).equals(session)) {
+                texts.add(String.format(Locale.ROOT, "turn %02d", i));
+            }
+        }
+        return texts;
+    }
+
+    private static void assertTurns(ConversationJournal journal, int count) throws IOException {
+        assertEquals(expected("s0", count), texts(journal, "s0"));
+        assertEquals(expected("s1", count), texts(journal, "s1"));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void truncate(Path file, long bytesToCut) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - bytesToCut);
+        }
+    }
+
+    private static void flipByte(Path file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xff);
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffAndNewTurnsFollowTheLastIntactOne() throws IOException {
+        ConversationJournal journal = open(1 << 20);
+        write(journal, 0, 10);
+        journal.close();
+        Files.delete(directory.resolve("heads.chk"));
+        truncate(segments().get(0), 5);
+
+        journal = open(1 << 20);
+        assertEquals(9, journal.getRecoveredRecords());
+        assertTurns(journal, 9);
+        write(journal, 9, 12);
+        journal.close();
+
+        Files.delete(directory.resolve("heads.chk"));
+        journal = open(1 << 20);
+        assertEquals(12, journal.getRecoveredRecords());
+        assertTurns(journal, 12);
+        journal.close();
+    }
+
+    @Test
+    void recordWithABadChecksumEndsTheJournal() throws IOException {
+        ConversationJournal journal = open(1 << 20);
+        write(journal, 0, 10);
+        journal.close();
+        Files.delete(directory.resolve("heads.chk"));
+        // Last byte of the text of the sixth record
+        flipByte(segments().get(0), 6L * RECORD_BYTES - 1);
+
+        journal = open(1 << 20);
+        assertEquals(5, journal.getRecoveredRecords());
+        assertTurns(journal, 5);
+        assertEquals(5L * RECORD_BYTES, Files.size(segments().get(0)));
+        journal.close();
+    }
+
+    @Test
+    void uncleanShutdownAfterACheckpointReplaysOnlyTheIntactTail() throws IOException {
+        // Small segments, so the turns span several of them
+        ConversationJournal journal = open(1024);
+        write(journal, 0, 40);
+        journal.close();
+        assertTrue(segments().size() > 1);
+
+        // Reopened from the checkpoint, then abandoned without close()
+        ConversationJournal crashed = open(1024);
+        try {
+            assertEquals(0, crashed.getRecoveredRecords());
+            write(crashed, 40, 70);
+            List<Path> segments = segments();
+            truncate(segments.get(segments.size() - 1), 3);
+
+            journal = open(1024);
+            assertEquals(29, journal.getRecoveredRecords());
+            assertTurns(journal, 69);
+            journal.close();
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void corruptCheckpointFallsBackToAFullScan() throws IOException {
+        ConversationJournal journal = open(1024);
+        write(journal, 0, 40);
+        journal.close();
+        flipByte(directory.resolve("heads.chk"), 6);
+
+        journal = open(1024);
+        assertEquals(40, journal.getRecoveredRecords());
+        assertTurns(journal, 40);
+        journal.close();
+    }
+
+    @Test
+    void onlyTheNewestSegmentsAndTheirSessionsAreKept() throws IOException {
+        // 30 records fit in a 1024-byte segment, so turns 60..99 are in the two newest
+        ConversationJournal journal = open(1024, 2);
+        journal.append("zz", ConversationJournal.Role.USER, "old one");
+        write(journal, 1, 100);
+        assertEquals(2, segments().size());
+        assertEquals(2, journal.sessions());
+        assertEquals(Collections.emptyList(), texts(journal, "zz"));
+        List<String> kept = expected("s0", 100).subList(30, 50);
+        assertEquals(kept, texts(journal, "s0"));
+        journal.close();
+
+        // Reopening from the checkpoint keeps the same window
+        journal = open(1024, 2);
+        assertEquals(2, journal.sessions());
+        assertEquals(kept, texts(journal, "s0"));
+        journal.close();
+
+        // A smaller limit takes effect on reopening
+        journal = open(1024, 1);
+        assertEquals(1, segments().size());
+        assertEquals(expected("s0", 100).subList(45, 50), texts(journal, "s0"));
+        journal.close();
+    }
+}
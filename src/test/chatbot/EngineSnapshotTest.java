@@ -0,0 +1,55 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Typo correction of query terms against the in-memory entries: which
+ * corrections stand, and what the corrected query then matches.
+ */
+class EngineSnapshotTest {
+    private final EngineSnapshot snapshot = snapshot(
+            "climate change", "Climate change answer",
+            "machine learning", "Machine learning answer",
+            "python", "Python answer",
+            "described video", "Described video answer");
+
+    private static EngineSnapshot snapshot(String... topicsAndAnswers) {
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        for (int i = 0; i < topicsAndAnswers.length; i += 2) {
+            entries.put(topicsAndAnswers[i], topicsAndAnswers[i + 1]);
+        }
+        return EngineSnapshot.initial().withKnowledge(entries, 1);
+    }
+
+    @Test
+    void correctionConfirmedByAnotherQueryTermStands() {
+        assertEquals(Arrays.asList("machine", "learning"), snapshot.correctTerms(Arrays.asList("machien", "lerning")));
+        assertEquals("Machine learning answer", snapshot.findKnowledgeMatch(Arrays.asList("machien", "lerning")));
+        assertEquals(Arrays.asList("climate", "change"), snapshot.correctTerms(Arrays.asList("climate", "chance")));
+    }
+
+    @Test
+    void correctionToATopicOfItsOwnStands() {
+        assertEquals(Collections.singletonList("python"), snapshot.correctTerms(Collections.singletonList("pyhton")));
+        assertEquals("Python answer", snapshot.findKnowledgeMatch(Collections.singletonList("pyhton")));
+    }
+
+    @Test
+    void unconfirmedCorrectionIsDropped() {
+        // "change" alone is only part of "climate change"
+        assertEquals(Collections.singletonList("chance"), snapshot.correctTerms(Collections.singletonList("chance")));
+        assertNull(snapshot.findKnowledgeMatch(Collections.singletonList("chance")));
+        assertNull(snapshot.findKnowledgeMatch(Arrays.asList("chance", "weather")));
+        assertEquals(Collections.emptyList(), snapshot.knownTerms(Collections.singletonList("chance")));
+    }
+
+    @Test
+    void stopWordsAndSynonymsAreNeverCorrected() {
+        // "describe" is one edit from "described" and "video" would confirm it
+        assertEquals(Arrays.asList("describe", "video"), snapshot.correctTerms(Arrays.asList("describe", "video")));
+    }
+}
@@ -0,0 +1,123 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Optimal string alignment distance and the trigram candidate lookup, checked
+ * against a scan of the whole vocabulary.
+ */
+class FuzzyTermIndexTest {
+    @Test
+    void adjacentTranspositionCostsOneEdit() {
+        assertEquals(1, FuzzyTermIndex.distance("pyhton", "python", 2));
+        assertEquals(1, FuzzyTermIndex.distance("ab", "ba", 2));
+        assertEquals(2, FuzzyTermIndex.distance("abcd", "badc", 2));
+        // Optimal string alignment edits no substring twice, unlike full Damerau-Levenshtein
+        assertEquals(3, FuzzyTermIndex.distance("ca", "abc", 3));
+    }
+
+    @Test
+    void distancePastTheBoundIsBoundPlusOne() {
+        assertEquals(3, FuzzyTermIndex.distance("kitten", "sitting", 3));
+        assertEquals(3, FuzzyTermIndex.distance("kitten", "sitting", 2));
+        assertEquals(2, FuzzyTermIndex.distance("kitten", "sitting", 1));
+        // Lengths too far apart are rejected without filling the table
+        assertEquals(3, FuzzyTermIndex.distance("a", "abcd", 2));
+        assertEquals(0, FuzzyTermIndex.distance("same", "same", 0));
+        assertEquals(4, FuzzyTermIndex.distance("", "abcd", 4));
+    }
+
+    @Test
+    void closestFindsTheNearestTerm() {
+        FuzzyTermIndex index = new FuzzyTermIndex(Arrays.asList("machine", "learning", "python", "java", "2024"));
+        assertEquals("machine", index.closest("machien", 1).getTerm());
+        assertEquals(1, index.closest("machien", 1).getDistance());
+        assertEquals("learning", index.closest("lerning", 1).getTerm());
+        assertEquals("python", index.closest("pyhton", 1).getTerm());
+        assertEquals(0, index.closest("java", 1).getDistance());
+        assertNull(index.closest("pthn", 1));
+        assertNull(index.closest("machien", 0));
+        // Numbers are never corrected
+        assertNull(index.closest("2025", 1));
+    }
+
+    @Test
+    void tiesGoToTheTermSharingMoreTrigramsThenTheEarlierOne() {
+        // Both one edit away; the insertion at the end keeps more trigrams than the substitution
+        FuzzyTermIndex index = new FuzzyTermIndex(Arrays.asList("abcdxf", "abcdeff"));
+        assertEquals("abcdeff", index.closest("abcdef", 1).getTerm());
+        // One substitution each, at the same place
+        index = new FuzzyTermIndex(Arrays.asList("darts", "carts"));
+        assertEquals("darts", index.closest("barts", 1).getTerm());
+    }
+
+    @Test
+    void candidatesMatchAScanOfTheVocabulary() {
+        Random random = new Random(5);
+        List<String> vocabulary = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            vocabulary.add(randomWord(random, 3 + random.nextInt(10)));
+        }
+        FuzzyTermIndex index = new FuzzyTermIndex(vocabulary);
+
+        for (int i = 0; i < 2000; i++) {
+            String word = mutate(random, vocabulary.get(random.nextInt(vocabulary.size())));
+            int maxDistance = 1 + random.nextInt(2);
+            int expected = maxDistance + 1;
+            for (String term : vocabulary) {
+                expected = Math.min(expected, FuzzyTermIndex.distance(word, term, maxDistance));
+            }
+
+            FuzzyTermIndex.Match match = index.closest(word, maxDistance);
+            if (expected > maxDistance) {
+                assertNull(match, word);
+            } else {
+                assertNotNull(match, word);
+                assertEquals(expected, match.getDistance(), word);
+                assertEquals(expected, FuzzyTermIndex.distance(word, match.getTerm(), maxDistance), word);
+            }
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // A small alphabet, so many terms are near each other
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Up to two random insertions, deletions, substitutions or transpositions.
+     */
+    private static String mutate(Random random, String term) {
+        StringBuilder word = new StringBuilder(term);
+        int edits = random.nextInt(3);
+        for (int e = 0; e < edits && word.length() > 1; e++) {
+            int position = random.nextInt(word.length());
+            switch (random.nextInt(4)) {
+                case 0:
+                    word.insert(position, (char) ('a' + random.nextInt(6)));
+                    break;
+                case 1:
+                    word.deleteCharAt(position);
+                    break;
+                case 2:
+                    word.setCharAt(position, (char) ('a' + random.nextInt(6)));
+                    break;
+                default:
+                    if (position + 1 < word.length()) {
+                        char c = word.charAt(position);
+                        word.setCharAt(position, word.charAt(position + 1));
+                        word.setCharAt(position + 1, c);
+                    }
+            }
+        }
+        return word.toString();
+    }
+}
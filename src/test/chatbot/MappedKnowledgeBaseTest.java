@@ -0,0 +1,126 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Files written by KnowledgeBaseBuilder: a mapped corpus answers exactly like
+ * a KnowledgeIndex holding the same entries, and files that are not in the
+ * expected format are refused when opened.
+ */
+class MappedKnowledgeBaseTest {
+    private static final String[] WORDS = {
+            "java", "python", "machine", "learning", "data", "science", "web", "development", "climate", "change",
+            "cloud", "security", "network", "café", "straße", "2024"
+    };
+
+    @TempDir
+    Path directory;
+
+    private Path build(Map<String, String> entries) throws IOException {
+        KnowledgeBaseBuilder builder = new KnowledgeBaseBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        Path file = directory.resolve("corpus.kb");
+        builder.write(file);
+        return file;
+    }
+
+    private static String randomTopic(Random random) {
+        int length = 1 + random.nextInt(4);
+        StringBuilder topic = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) topic.append(' ');
+            topic.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return topic.toString();
+    }
+
+    @Test
+    void answersLikeAKnowledgeIndexWithTheSameEntries() throws IOException {
+        Random random = new Random(3);
+        KnowledgeIndex expected = new KnowledgeIndex();
+        KnowledgeBaseBuilder builder = new KnowledgeBaseBuilder();
+        for (int i = 0; i < 500; i++) {
+            // Repeated topics keep their first position and their last answer in both
+            String topic = randomTopic(random);
+            String answer = "Answer " + i + " about " + topic;
+            expected.put(topic, answer);
+            builder.add(topic, answer);
+        }
+        Path file = directory.resolve("corpus.kb");
+        builder.write(file);
+        MappedKnowledgeBase corpus = MappedKnowledgeBase.open(file);
+
+        assertEquals(expected.size(), corpus.size());
+        assertEquals(expected.terms().size(), corpus.getTermCount());
+        for (String term : expected.terms()) {
+            assertTrue(corpus.containsTerm(term), term);
+        }
+        assertFalse(corpus.containsTerm("missing"));
+        for (int i = 0; i < 2000; i++) {
+            List<String> query = KnowledgeIndex.tokenize(randomTopic(random));
+            if (random.nextInt(4) == 0) {
+                query.add("missing");
+            }
+            assertEquals(expected.findBestAnswer(query), corpus.findBestAnswer(query), query.toString());
+        }
+    }
+
+    @Test
+    void emptyCorpusAnswersNothing() throws IOException {
+        MappedKnowledgeBase corpus = MappedKnowledgeBase.open(build(Collections.<String, String>emptyMap()));
+        assertEquals(0, corpus.size());
+        assertNull(corpus.findBestAnswer(Collections.singletonList("java")));
+    }
+
+    @Test
+    void badMagicIsRefused() throws IOException {
+        Path file = build(Collections.singletonMap("java", "Java answer"));
+        overwriteInt(file, 0, 0x12345678);
+        IOException e = assertThrows(IOException.class, () -> MappedKnowledgeBase.open(file));
+        assertTrue(e.getMessage().contains("not a knowledge base file"), e.getMessage());
+    }
+
+    @Test
+    void unsupportedVersionIsRefused() throws IOException {
+        Path file = build(Collections.singletonMap("java", "Java answer"));
+        overwriteInt(file, 4, MappedKnowledgeBase.VERSION + 1);
+        IOException e = assertThrows(IOException.class, () -> MappedKnowledgeBase.open(file));
+        assertTrue(e.getMessage().contains("Unsupported knowledge base version"), e.getMessage());
+    }
+
+    @Test
+    void countsThatDisagreeWithTheSectionsAreRefused() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        entries.put("java", "Java answer");
+        entries.put("machine learning", "ML answer");
+        Path file = build(entries);
+        // A term count far beyond the file would make term offsets overflow an int
+        overwriteInt(file, 12, Integer.MAX_VALUE - 1);
+        IOException e = assertThrows(IOException.class, () -> MappedKnowledgeBase.open(file));
+        assertTrue(e.getMessage().contains("termOffsets"), e.getMessage());
+
+        Path truncated = build(entries);
+        try (RandomAccessFile raf = new RandomAccessFile(truncated.toFile(), "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        e = assertThrows(IOException.class, () -> MappedKnowledgeBase.open(truncated));
+        assertTrue(e.getMessage().contains("answerBytes"), e.getMessage());
+    }
+
+    private static void overwriteInt(Path file, long offset, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(offset);
+            raf.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhraseClassifierTest {
+    @Test
+    void nonAsciiPhrasesMatchOnlyTheirOwnLetters() throws IOException {
+        PhraseClassifier classifier = PhraseClassifier.compile(new StringReader("lang FR: café, à bientôt\nlang X: naïve*"));
+        assertEquals("FR", classifier.classify("un Café, merci").label("lang", null));
+        assertEquals("FR", classifier.classify("à bientôt").label("lang", null));
+        assertNull(classifier.classify("un cafè").label("lang", null));
+        assertNull(classifier.classify("ä bientôt").label("lang", null));
+        assertNull(classifier.classify("cafe").label("lang", null));
+        assertEquals("X", classifier.classify("NAÏVETÉ").label("lang", null));
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("FR", "X")), classifier.labels("lang"));
+    }
+
+    @Test
+    void anchoredPhrasesMatchOnlyAtTheStart() throws IOException {
+        PhraseClassifier classifier = PhraseClassifier.compile(new StringReader("lead YES: ^it, ^what about\nany YES: it"));
+        assertEquals("YES", classifier.classify("it is slow").label("lead", null));
+        assertEquals("YES", classifier.classify("  ...what about it").label("lead", null));
+        assertNull(classifier.classify("is it slow").label("lead", null));
+        assertNull(classifier.classify("item").label("lead", null));
+        assertEquals("YES", classifier.classify("is it slow").label("any", null));
+    }
+
+    @Test
+    void unknownQueryTypeFailsWhenRulesLoad(@TempDir Path directory) throws IOException {
+        Path rules = directory.resolve("rules.txt");
+        Files.write(rules, Collections.singletonList("type QUESTON: what is"), StandardCharsets.UTF_8);
+        System.setProperty(PhraseClassifier.RULES_PROPERTY, rules.toString());
+        try {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, AdvancedNLPProcessor::new);
+            assertTrue(error.getMessage().contains("QUESTON"), error.getMessage());
+        } finally {
+            System.clearProperty(PhraseClassifier.RULES_PROPERTY);
+        }
+    }
+}
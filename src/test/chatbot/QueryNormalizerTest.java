@@ -0,0 +1,113 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential test of QueryNormalizer against the per-synonym regex rewrite
+ * and regex keyword split it replaced, on the default tables.
+ */
+class QueryNormalizerTest {
+    private static final String[] WORDS = {
+            "how", "explain", "tell", "show", "help", "ai", "ml", "programming",
+            "How", "EXPLAIN", "Tell", "sHoW", "AI", "ML", "Programming",
+            "howl", "shows", "ai_", "_ml", "mlx", "helpful", "ai2", "tell's",
+            "the", "is", "it", "we", "can", "machine", "learning", "java", "python", "data", "x", "go",
+            "café", "naïve", "straße", "über", "日本語", "aí", "éxplain", "2024", "c++", "a_b"
+    };
+    private static final String[] SEPARATORS = {
+            " ", " ", " ", "  ", "\t", "\n", "\r\n", ", ", ". ", "? ", "!", "-", "'", "/", " ", " ", "\u0301", "_"
+    };
+
+    private final Map<String, String> synonyms = AdvancedNLPProcessor.defaultSynonyms();
+    private final Set<String> stopWords = AdvancedNLPProcessor.defaultStopWords();
+    private final QueryNormalizer normalizer = new QueryNormalizer(synonyms, stopWords);
+
+    @Test
+    void matchesRegexNormalizationOnRandomInputs() {
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            String input = randomInput(random);
+            QueryNormalizer.Result result = normalizer.normalize(input);
+            String expectedText = referenceText(input);
+            assertEquals(expectedText, result.getNormalizedText(), () -> "normalized text of " + quote(input));
+            assertEquals(referenceKeywords(expectedText), result.getKeywords(), () -> "keywords of " + quote(input));
+        }
+    }
+
+    @Test
+    void rewritesEachInputWordOnce() {
+        QueryNormalizer.Result result = normalizer.normalize("  Tell me how ML helps, show AI! ");
+        assertEquals("explain me what machine learning helps, explain artificial intelligence!", result.getNormalizedText());
+        assertEquals(Arrays.asList("explain", "what", "machine", "learning", "helps", "explain", "artificial", "intelligence"),
+                result.getKeywords());
+    }
+
+    @Test
+    void recognizesSingleWords() {
+        assertTrue(QueryNormalizer.isWord("ml"));
+        assertTrue(QueryNormalizer.isWord("snake_case"));
+        assertTrue(QueryNormalizer.isWord("é"));
+        assertFalse(QueryNormalizer.isWord(""));
+        assertFalse(QueryNormalizer.isWord("machine learning"));
+        assertFalse(QueryNormalizer.isWord("c++"));
+        assertFalse(QueryNormalizer.isWord("\u0301e"));
+    }
+
+    @Test
+    void rejectsMultiWordSynonymKeysWhenLoaded(@TempDir Path directory) throws IOException {
+        Files.write(directory.resolve(ContentReloader.SYNONYMS_FILE),
+                Arrays.asList("ml = machine learning", "deep learning = neural networks"), StandardCharsets.UTF_8);
+        IOException error = assertThrows(IOException.class, () -> ContentReloader.read(directory));
+        assertTrue(error.getMessage().contains("line 2"), error.getMessage());
+    }
+
+    private static String randomInput(Random random) {
+        StringBuilder input = new StringBuilder();
+        if (random.nextInt(4) == 0) input.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        int words = 1 + random.nextInt(8);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) input.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            input.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(4) == 0) input.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        return input.toString();
+    }
+
+    /**
+     * The rewrite QueryNormalizer replaced: one replaceAll per synonym, in map order.
+     */
+    private String referenceText(String input) {
+        String normalizedText = input.toLowerCase().trim();
+        for (Map.Entry<String, String> synonym : synonyms.entrySet()) {
+            normalizedText = normalizedText.replaceAll("\\b" + synonym.getKey() + "\\b", synonym.getValue());
+        }
+        return normalizedText;
+    }
+
+    private List<String> referenceKeywords(String normalizedText) {
+        List<String> keywords = new ArrayList<String>();
+        for (String word : normalizedText.replaceAll("[^a-zA-Z0-9\\s]", "").split("\\s+")) {
+            if (!stopWords.contains(word) && word.length() > 2) {
+                keywords.add(word);
+            }
+        }
+        return keywords;
+    }
+
+    private static String quote(String input) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : input.toCharArray()) {
+            quoted.append(c < 0x20 || c > 0x7e ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return quoted.append('"').toString();
+    }
+}
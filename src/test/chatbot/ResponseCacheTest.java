@@ -0,0 +1,83 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LRU eviction, cached misses, and which differences between two queries
+ * give them different keys.
+ */
+class ResponseCacheTest {
+    private static ProcessedQuery query(List<String> keywords, QueryType type, String intent, List<String> context) {
+        return new ProcessedQuery(String.join(" ", keywords), keywords, type, intent, false, context);
+    }
+
+    private static ProcessedQuery query(String... keywords) {
+        return query(Arrays.asList(keywords), QueryType.QUESTION, "LEARNING", Collections.<String>emptyList());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("a", "answer a");
+        cache.put("b", "answer b");
+        assertEquals("answer a", cache.get("a").getKnowledgeAnswer());
+        cache.put("c", "answer c");
+
+        assertNull(cache.get("b"));
+        assertEquals("answer a", cache.get("a").getKnowledgeAnswer());
+        assertEquals("answer c", cache.get("c").getKnowledgeAnswer());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void cachedMissIsTellableFromAnUnknownKey() {
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("miss", null);
+        // An answer with the same text as any marker is still an answer
+        cache.put("hit", "no knowledge match");
+
+        assertNull(cache.get("unknown"));
+        assertNotNull(cache.get("miss"));
+        assertNull(cache.get("miss").getKnowledgeAnswer());
+        assertEquals("no knowledge match", cache.get("hit").getKnowledgeAnswer());
+    }
+
+    @Test
+    void wordOrderAndRepeatsShareAKey() {
+        assertEquals(ResponseCache.keyOf(query("java", "python"), 1),
+                ResponseCache.keyOf(query("python", "java", "python"), 1));
+    }
+
+    @Test
+    void lookupFromBeforeAReloadMisses() {
+        ResponseCache cache = new ResponseCache(10);
+        ProcessedQuery query = query("java");
+        cache.put(ResponseCache.keyOf(query, 1), "old answer");
+
+        assertNull(cache.get(ResponseCache.keyOf(query, 2)));
+        assertEquals("old answer", cache.get(ResponseCache.keyOf(query, 1)).getKnowledgeAnswer());
+        cache.clear();
+        assertNull(cache.get(ResponseCache.keyOf(query, 1)));
+    }
+
+    @Test
+    void sameKeywordsWithAnotherIntentTypeOrContextMiss() {
+        List<String> keywords = Arrays.asList("java", "frameworks");
+        List<String> none = Collections.<String>emptyList();
+        ResponseCache cache = new ResponseCache(10);
+        cache.put(ResponseCache.keyOf(query(keywords, QueryType.QUESTION, "LEARNING", none), 1), "answer");
+
+        assertNotNull(cache.get(ResponseCache.keyOf(query(keywords, QueryType.QUESTION, "LEARNING", none), 1)));
+        assertNull(cache.get(ResponseCache.keyOf(query(keywords, QueryType.QUESTION, "COMPARISON", none), 1)));
+        assertNull(cache.get(ResponseCache.keyOf(query(keywords, QueryType.EXPLANATION, "LEARNING", none), 1)));
+        assertNull(cache.get(ResponseCache.keyOf(
+                query(keywords, QueryType.QUESTION, "LEARNING", Collections.singletonList("python")), 1)));
+    }
+}
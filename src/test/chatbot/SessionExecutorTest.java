@@ -0,0 +1,153 @@
+package chatbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Turn order within a session, admission when a shard is full, and the
+ * return of every admitted turn's place in the queue.
+ */
+class SessionExecutorTest {
+    private SessionExecutor executor;
+    private final ScheduledExecutorService completer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void close() throws InterruptedException {
+        executor.close();
+        completer.shutdownNow();
+    }
+
+    /**
+     * A turn whose shard thread waits until the latch opens.
+     */
+    private static CompletableFuture<String> blockingTurn(CountDownLatch started, CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return CompletableFuture.completedFuture("done");
+    }
+
+    @Test
+    void turnsOfASessionRunInSubmissionOrder() throws Exception {
+        executor = new SessionExecutor(4, 10000);
+        Map<String, List<Integer>> started = new ConcurrentHashMap<String, List<Integer>>();
+        List<CompletableFuture<Integer>> results = new ArrayList<CompletableFuture<Integer>>();
+        for (int turn = 0; turn < 100; turn++) {
+            for (int session = 0; session < 20; session++) {
+                String sessionId = "session-" + session;
+                int number = turn;
+                results.add(executor.submit(sessionId, () -> {
+                    started.computeIfAbsent(sessionId, id -> Collections.synchronizedList(new ArrayList<Integer>()))
+                            .add(number);
+                    if (number % 3 != 0) return CompletableFuture.completedFuture(number);
+                    // Every third turn waits, like a web search, without holding the shard
+                    CompletableFuture<Integer> later = new CompletableFuture<Integer>();
+                    completer.schedule(() -> later.complete(number), 1, TimeUnit.MILLISECONDS);
+                    return later;
+                }));
+            }
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int turn = 0; turn < 100; turn++) {
+            expected.add(turn);
+        }
+        assertEquals(20, started.size());
+        for (List<Integer> turns : started.values()) {
+            assertEquals(expected, turns);
+        }
+    }
+
+    @Test
+    void fullShardRejectsAtOnce() throws Exception {
+        executor = new SessionExecutor(1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = executor.submit("a", () -> blockingTurn(started, release));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // The running turn has given back its place; two more fit behind it
+        CompletableFuture<String> second = executor.submit("b", () -> CompletableFuture.completedFuture("b"));
+        CompletableFuture<String> third = executor.submit("a", () -> CompletableFuture.completedFuture("a"));
+        CompletableFuture<String> rejected = executor.submit("c", () -> CompletableFuture.completedFuture("c"));
+        assertEquals(2, executor.getQueueDepth());
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(ProfessionalChatbotEngine.isBusy(e.getCause()));
+        assertEquals(1, executor.getRejected());
+
+        release.countDown();
+        assertEquals("done", first.get(10, TimeUnit.SECONDS));
+        assertEquals("b", second.get(10, TimeUnit.SECONDS));
+        assertEquals("a", third.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void everyAdmittedTurnGivesBackItsPlace() throws Exception {
+        executor = new SessionExecutor(1, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocker = executor.submit("a", () -> blockingTurn(started, release));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Queued behind the blocker: one cancelled before it starts, one failing,
+        // one throwing from the supplier and one waiting behind a busy turn of its session
+        CompletableFuture<String> cancelled = executor.submit("b", () -> CompletableFuture.completedFuture("b"));
+        CompletableFuture<String> failing = executor.submit("c",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("failed")));
+        CompletableFuture<String> throwing = executor.submit("d", () -> {
+            throw new IllegalStateException("thrown");
+        });
+        CompletableFuture<String> behind = executor.submit("a", () -> CompletableFuture.completedFuture("a"));
+        assertEquals(4, executor.getQueueDepth());
+        cancelled.cancel(false);
+
+        release.countDown();
+        assertEquals("done", blocker.get(10, TimeUnit.SECONDS));
+        assertEquals("a", behind.get(10, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> throwing.get(10, TimeUnit.SECONDS));
+        assertTrue(cancelled.isCancelled());
+
+        // The queue is empty again, so the full capacity is admitted
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getQueueDepth());
+        List<CompletableFuture<String>> again = new ArrayList<CompletableFuture<String>>();
+        CountDownLatch startedAgain = new CountDownLatch(1);
+        CountDownLatch releaseAgain = new CountDownLatch(1);
+        again.add(executor.submit("a", () -> blockingTurn(startedAgain, releaseAgain)));
+        assertTrue(startedAgain.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            again.add(executor.submit("s" + i, () -> CompletableFuture.completedFuture("ok")));
+        }
+        releaseAgain.countDown();
+        assertEquals("done", again.get(0).get(10, TimeUnit.SECONDS));
+        for (CompletableFuture<String> result : again.subList(1, again.size())) {
+            assertEquals("ok", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, executor.getRejected());
+    }
+
+    @Test
+    void closedExecutorRejectsNewTurns() throws Exception {
+        executor = new SessionExecutor(2, 4);
+        assertEquals("ok", executor.submit("a", () -> CompletableFuture.completedFuture("ok")).get(10, TimeUnit.SECONDS));
+        executor.close();
+        CompletableFuture<String> late = executor.submit("a", () -> CompletableFuture.completedFuture("late"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(0, executor.getQueueDepth());
+    }
+}
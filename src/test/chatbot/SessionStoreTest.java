@@ -0,0 +1,139 @@
+package chatbot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Eviction by recency, idle time and heap estimate, the estimate itself, and
+ * restoring an evicted session from the journal.
+ */
+class SessionStoreTest {
+    private static final int TURNS = 3;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * What an empty session with the given id is charged.
+     */
+    private static long emptySession(String sessionId) {
+        return ConversationMemory.overheadBytes(TURNS) + SessionStore.ENTRY_BYTES + 2L * sessionId.length();
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsEvictedFirst() {
+        SessionStore store = new SessionStore(TURNS, 3, Long.MAX_VALUE, 1, TimeUnit.HOURS);
+        ConversationMemory a = store.get("a");
+        a.addUserMessage("hello from a");
+        store.get("b");
+        store.get("c");
+        // Using "a" again makes "b" the eldest
+        assertSame(a, store.get("a"));
+        store.get("d");
+
+        assertEquals(3, store.liveSessions());
+        assertEquals(1, store.evictions());
+        assertSame(a, store.get("a"));
+        assertEquals(Collections.singletonList("hello from a"), a.getRecentUserMessages());
+        assertTrue(store.get("b").getRecentUserMessages().isEmpty(), "b was evicted and starts over");
+    }
+
+    @Test
+    void idleSessionsExpire() throws InterruptedException {
+        SessionStore store = new SessionStore(TURNS, 100, Long.MAX_VALUE, 50, TimeUnit.MILLISECONDS);
+        store.get("a").addUserMessage("hello");
+        store.get("b");
+        Thread.sleep(100);
+        store.get("c");
+
+        assertEquals(1, store.liveSessions());
+        assertEquals(2, store.evictions());
+        assertEquals(emptySession("c"), store.approximateBytes());
+    }
+
+    @Test
+    void estimateCountsTurnsAndTheFixedOverheadOfEverySession() {
+        SessionStore store = new SessionStore(TURNS, 100, Long.MAX_VALUE, 1, TimeUnit.HOURS);
+        store.get("a");
+        store.get("bb");
+        assertEquals(emptySession("a") + emptySession("bb"), store.approximateBytes());
+        // An empty session is more than the two strings of a short turn would suggest
+        assertTrue(emptySession("a") > 2 * (40 + 2 * 5));
+
+        ConversationMemory a = store.get("a");
+        a.addUserMessage("12345");
+        a.addAssistantResponse("1234567890");
+        assertEquals(emptySession("a") + emptySession("bb") + (40 + 10) + (40 + 20), store.approximateBytes());
+        assertEquals(ConversationMemory.overheadBytes(TURNS) + (40 + 10) + (40 + 20), a.approximateBytes());
+
+        // A full ring drops the oldest turn's bytes with it
+        for (int i = 0; i < TURNS; i++) {
+            a.addUserMessage("1");
+        }
+        assertEquals(emptySession("a") + emptySession("bb") + TURNS * (40 + 2) + (40 + 20), store.approximateBytes());
+
+        assertTrue(store.remove("a"));
+        assertTrue(store.remove("bb"));
+        assertEquals(0, store.approximateBytes());
+        // A removed memory no longer reports to the store
+        a.addUserMessage("after removal");
+        assertEquals(0, store.approximateBytes());
+    }
+
+    @Test
+    void byteCapEvictsTheEldestButNeverTheCurrentSession() {
+        char[] text = new char[1000];
+        Arrays.fill(text, 'x');
+        String turn = new String(text);
+        long perSession = emptySession("s0") + 40 + 2 * turn.length();
+        SessionStore store = new SessionStore(TURNS, 100, 3 * perSession, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10; i++) {
+            store.get("s" + i).addUserMessage(turn);
+        }
+
+        assertTrue(store.approximateBytes() <= 3 * perSession, String.valueOf(store.approximateBytes()));
+        assertTrue(store.liveSessions() >= 2);
+        assertTrue(store.evictions() >= 7);
+
+        // A session larger than the whole cap on its own is still handed out
+        SessionStore tiny = new SessionStore(TURNS, 100, 1, 1, TimeUnit.HOURS);
+        ConversationMemory only = tiny.get("only");
+        only.addUserMessage(turn);
+        assertSame(only, tiny.get("only"));
+        assertEquals(1, tiny.liveSessions());
+    }
+
+    @Test
+    void evictedSessionIsRestoredFromTheJournal() throws IOException {
+        ConversationJournal journal = ConversationJournal.open(directory, ConversationJournal.Durability.ASYNC, 10,
+                1 << 20, Long.MAX_VALUE, 8);
+        try {
+            SessionStore store = new SessionStore(TURNS, 1, Long.MAX_VALUE, 1, TimeUnit.HOURS);
+            store.setJournal(journal);
+            ConversationMemory a = store.get("a");
+            for (int i = 0; i < 5; i++) {
+                journal.append("a", ConversationJournal.Role.USER, "question " + i);
+                a.addUserMessage("question " + i);
+                journal.append("a", ConversationJournal.Role.ASSISTANT, "answer " + i);
+                a.addAssistantResponse("answer " + i);
+            }
+            store.get("b");
+            assertEquals(1, store.evictions());
+
+            ConversationMemory restored = store.get("a");
+            assertNotSame(a, restored);
+            assertEquals(a.getRecentUserMessages(), restored.getRecentUserMessages());
+            assertEquals(a.getRecentResponses(), restored.getRecentResponses());
+            assertEquals(restored.approximateBytes() + SessionStore.ENTRY_BYTES + 2, store.approximateBytes());
+        } finally {
+            journal.close();
+        }
+    }
+}
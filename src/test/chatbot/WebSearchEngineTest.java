@@ -0,0 +1,171 @@
+package chatbot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WebSearchEngine against a local stub of the instant answer API whose
+ * status and response delay each test controls.
+ */
+class WebSearchEngineTest {
+    private static final String ANSWER = "Java is a programming language.";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    // Requests wait for this latch before they are answered
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", this::answer);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = ("{\"AbstractText\":\"" + ANSWER + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException e) {
+            // The client has gone
+        }
+    }
+
+    private WebSearchEngine engine(Duration requestTimeout, int failureThreshold, Duration openDuration) {
+        return new WebSearchEngine("http://127.0.0.1:" + server.getAddress().getPort() + "/",
+                Duration.ofSeconds(1), requestTimeout, 100, Duration.ofMinutes(1), failureThreshold, openDuration);
+    }
+
+    @Test
+    void identicalInFlightQueriesShareOneUpstreamCall() throws Exception {
+        WebSearchEngine search = engine(Duration.ofSeconds(5), 5, Duration.ofSeconds(30));
+        release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = search.searchLive("java news");
+        CompletableFuture<String> second = search.searchLive("News  JAVA");
+        CompletableFuture<String> third = search.searchLive("java news news");
+        await(() -> requests.get() == 1);
+        release.countDown();
+
+        assertEquals(ANSWER, first.get(5, TimeUnit.SECONDS));
+        assertEquals(ANSWER, second.get(5, TimeUnit.SECONDS));
+        assertEquals(ANSWER, third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void repeatedQueryIsServedFromTheCache() throws Exception {
+        WebSearchEngine search = engine(Duration.ofSeconds(5), 5, Duration.ofSeconds(30));
+        assertEquals(ANSWER, search.searchLive("java news").get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> again = search.searchLive("news java");
+        assertTrue(again.isDone(), "a cached answer completes at once");
+        assertEquals(ANSWER, again.get());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void slowUpstreamTimesOutToTheFallback() throws Exception {
+        WebSearchEngine search = engine(Duration.ofMillis(200), 5, Duration.ofSeconds(30));
+        release = new CountDownLatch(1);
+
+        assertNull(search.searchLive("java news").get(5, TimeUnit.SECONDS));
+        assertEquals(search.fallbackResponse("java news"), search.searchAsync("java news").get(5, TimeUnit.SECONDS));
+        assertEquals(WebSearchEngine.CircuitBreaker.State.CLOSED, search.getCircuitState());
+    }
+
+    @Test
+    void abandonedQueryCancelsItsUpstreamCallWithoutCountingAFailure() throws Exception {
+        WebSearchEngine search = engine(Duration.ofSeconds(5), 1, Duration.ofSeconds(30));
+        release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = search.searchLive("java news");
+        CompletableFuture<String> second = search.searchLive("java news");
+        await(() -> requests.get() == 1);
+        first.cancel(false);
+        second.cancel(false);
+        // A cancelled call is no failure, even with a threshold of one
+        assertEquals(WebSearchEngine.CircuitBreaker.State.CLOSED, search.getCircuitState());
+
+        // The query starts afresh instead of joining the abandoned call
+        CompletableFuture<String> third = search.searchLive("java news");
+        await(() -> requests.get() == 2);
+        release.countDown();
+        assertEquals(ANSWER, third.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void breakerOpensAfterFailuresAndReleasesACancelledProbe() throws Exception {
+        Duration openDuration = Duration.ofMillis(300);
+        WebSearchEngine search = engine(Duration.ofSeconds(5), 2, openDuration);
+        status = 500;
+
+        assertNull(search.searchLive("first query").get(5, TimeUnit.SECONDS));
+        assertNull(search.searchLive("second query").get(5, TimeUnit.SECONDS));
+        assertEquals(WebSearchEngine.CircuitBreaker.State.OPEN, search.getCircuitState());
+
+        // Open: answered without calling the upstream
+        CompletableFuture<String> refused = search.searchLive("third query");
+        assertTrue(refused.isDone());
+        assertNull(refused.get());
+        assertEquals(2, requests.get());
+
+        // After the open period a single probe goes through
+        Thread.sleep(openDuration.toMillis() + 50);
+        status = 200;
+        release = new CountDownLatch(1);
+        CompletableFuture<String> probe = search.searchLive("probe query");
+        assertEquals(WebSearchEngine.CircuitBreaker.State.HALF_OPEN, search.getCircuitState());
+        await(() -> requests.get() == 3);
+        assertNull(search.searchLive("another query").get(1, TimeUnit.SECONDS));
+        assertEquals(3, requests.get());
+
+        // Cancelling the probe lets the next request probe again right away
+        probe.cancel(false);
+        await(() -> search.getCircuitState() == WebSearchEngine.CircuitBreaker.State.OPEN);
+        release.countDown();
+        assertEquals(ANSWER, search.searchLive("next probe").get(5, TimeUnit.SECONDS));
+        assertEquals(WebSearchEngine.CircuitBreaker.State.CLOSED, search.getCircuitState());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not met within 5 s");
+            Thread.sleep(10);
+        }
+    }
+}